@@ -0,0 +1,110 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the set logic of UtilImpl, for decks of different sizes and cards of different shapes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    /**
+     * The number of candidate sets testSet cycles through (half of them legal), so that its branches are not
+     * predicted from the previous call.
+     */
+    private static final int CANDIDATES = 1024;
+
+    private static final String ALL_CARDS = "deck";
+
+    @Param({"3", "4"})
+    int featureSize;
+
+    @Param({"3", "4"})
+    int featureCount;
+
+    /**
+     * The number of cards in the deck searched (all the cards, if there are fewer), or ALL_CARDS for the whole deck
+     * of the feature configuration (27, 81, 64 or 256 cards).
+     */
+    @Param({"12", "15", "21", "81", ALL_CARDS})
+    String cards;
+
+    private UtilImpl util;
+    private List<Integer> deck;
+    private int[][] candidates;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        util = UtilImplTest.createUtil(featureSize, featureCount);
+        int deckSize = (int) Math.pow(featureSize, featureCount);
+        Random random = new Random(0);
+        int size = cards.equals(ALL_CARDS) ? deckSize : Math.min(Integer.parseInt(cards), deckSize);
+        deck = UtilImplTest.randomDeck(deckSize, size, random);
+
+        candidates = new int[CANDIDATES][];
+        for (int i = 0; i < CANDIDATES; i++) {
+            int[] candidate = UtilImplTest.randomDeck(deckSize, featureSize, random).stream()
+                    .mapToInt(Integer::intValue).toArray();
+            if (i % 2 == 0) {
+                // replace the last card by the one that completes the others to a legal set
+                int[] partial = new int[featureSize - 1];
+                System.arraycopy(candidate, 0, partial, 0, partial.length);
+                candidate[featureSize - 1] = util.completeSet(partial);
+            }
+            candidates[i] = candidate;
+        }
+    }
+
+    private int[] nextCandidate() {
+        next = (next + 1) & (CANDIDATES - 1);
+        return candidates[next];
+    }
+
+    @Benchmark
+    public boolean testSet() {
+        return util.testSet(nextCandidate());
+    }
+
+    @Benchmark
+    public int[][] cardsToFeatures() {
+        return util.cardsToFeatures(nextCandidate());
+    }
+
+    @Benchmark
+    public List<int[]> findOneSet() {
+        return util.findSets(deck, 1);
+    }
+
+    @Benchmark
+    public List<int[]> findAllSets() {
+        return util.findSets(deck, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The original combinatorial search, as a baseline for findAllSets.
+     */
+    @Benchmark
+    public List<int[]> findAllSetsReference() {
+        return UtilImplTest.referenceFindSets(util, featureSize, deck, Integer.MAX_VALUE);
+    }
+}
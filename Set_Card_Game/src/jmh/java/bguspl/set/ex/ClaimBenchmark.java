@@ -0,0 +1,112 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceNone;
+import bguspl.set.UtilImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the latency of a set claim from its submission to the dealer's verdict: the claim is queued, and the
+ * dealer takes it (Dealer.removeCardsFromTable), checks it, and for a legal set removes its cards and deals new ones.
+ * The dealer is driven without its thread (see Dealer.step), so the latency does not include waking it up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClaimBenchmark {
+
+    final int CLAIMER = 0;
+
+    /**
+     * Whether the claimed cards are a legal set.
+     */
+    @Param({"true", "false"})
+    boolean legal;
+
+    private TableTest.MockLogger logger;
+    private Config config;
+    private Table table;
+    private Dealer dealer;
+    private int[] slots;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("TurnTimeoutSeconds", "-1");
+        properties.put("TableDelaySeconds", "0");
+        logger = new TableTest.MockLogger();
+        config = new Config(logger, properties);
+        slots = new int[config.featureSize];
+        newGame();
+    }
+
+    private void newGame() {
+        Env env = new Env(logger, config, new UserInterfaceNone(), new UtilImpl(config));
+        table = new Table(env);
+        Player[] players = new Player[config.players];
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+        dealer.start();
+    }
+
+    /**
+     * Places the claimer's tokens on the cards of the next claim (starting a new game when the deck runs out).
+     */
+    @Setup(Level.Invocation)
+    public void placeTokens() {
+        for (int slot = 0; slot < config.tableSize; slot++)
+            table.removeToken(CLAIMER, slot); // left by the previous claim, if it was rejected
+        if (dealer.isTerminated() || !table.findSet(slots))
+            newGame();
+        table.findSet(slots);
+        if (!legal)
+            slots[0] = otherSlot(); // no other card completes the set
+        for (int slot : slots)
+            table.placeToken(CLAIMER, slot);
+    }
+
+    /**
+     * @return - a slot with a card that is not one of the slots of the claim.
+     */
+    private int otherSlot() {
+        for (int slot = 0; ; slot++)
+            if (table.slotToCard[slot] != table.EMPTY && !contains(slots, slot))
+                return slot;
+    }
+
+    private static boolean contains(int[] array, int value) {
+        for (int element : array)
+            if (element == value)
+                return true;
+        return false;
+    }
+
+    @Benchmark
+    public boolean claim() {
+        dealer.claimSet(CLAIMER, slots);
+        while (dealer.step()) ;
+        return table.isTokenPlaced(CLAIMER, slots[0]);
+    }
+}
@@ -0,0 +1,107 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmarks of token placement on a full 12 slot table as the number of contending players grows: every thread is
+ * a player that places and removes its tokens on random slots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark {
+
+    private static final int MAX_PLAYERS = 64;
+
+    private Table table;
+    private final AtomicInteger players = new AtomicInteger();
+
+    /**
+     * The player a benchmark thread plays.
+     */
+    @State(Scope.Thread)
+    public static class PlayerState {
+        int id;
+        SplittableRandom random;
+
+        @Setup
+        public void setUp(TableBenchmark benchmark) {
+            id = benchmark.players.getAndIncrement() % MAX_PLAYERS;
+            random = new SplittableRandom(id);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", Integer.toString(MAX_PLAYERS));
+        properties.put("TableDelaySeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        table = new Table(new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil()));
+        for (int slot = 0; slot < config.tableSize; slot++)
+            table.placeCard(slot, slot);
+    }
+
+    private boolean placeAndRemove(PlayerState player) {
+        int slot = player.random.nextInt(table.slotToCard.length);
+        return table.placeToken(player.id, slot) & table.removeToken(player.id, slot);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public boolean tokens_2Players(PlayerState player) {
+        return placeAndRemove(player);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean tokens_4Players(PlayerState player) {
+        return placeAndRemove(player);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean tokens_8Players(PlayerState player) {
+        return placeAndRemove(player);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean tokens_16Players(PlayerState player) {
+        return placeAndRemove(player);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean tokens_32Players(PlayerState player) {
+        return placeAndRemove(player);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public boolean tokens_64Players(PlayerState player) {
+        return placeAndRemove(player);
+    }
+}
@@ -0,0 +1,137 @@
+package bguspl.set;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * This class is a log handler that does not hold up the threads that log: a record is only put in a lock-free ring
+ * buffer, and a background thread formats the records and writes them to the log file in batches.
+ * Only if the writer falls a whole buffer behind does a thread that logs wait for it, so no record is ever lost.
+ */
+public class AsyncLogHandler extends Handler {
+
+    /**
+     * The maximal number of records written at once, and the longest time (in millis) a record waits to be written.
+     */
+    private static final int BATCH_SIZE = 1024;
+    private static final long WRITE_INTERVAL_MILLIS = 10;
+
+    private final RingBuffer<LogRecord> records;
+    private final Writer writer;
+    /**
+     * The thread writing the records (set once by start, before the handler is handed out).
+     */
+    private Thread writerThread;
+
+    /**
+     * The number of records taken from the buffer and written out (and flushed) so far.
+     */
+    private volatile long written;
+
+    private volatile boolean closed;
+
+    private AsyncLogHandler(String filename, int capacity) throws IOException {
+        records = new RingBuffer<>(capacity);
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates a handler and starts its writer thread.
+     *
+     * @param filename - the log file (created or truncated).
+     * @param capacity - the number of records the buffer holds.
+     * @return - the handler.
+     * @throws IOException - if the log file cannot be opened.
+     */
+    public static AsyncLogHandler start(String filename, int capacity) throws IOException {
+        AsyncLogHandler handler = new AsyncLogHandler(filename, capacity);
+        handler.writerThread = new Thread(handler::writeRecords, "log-writer");
+        handler.writerThread.setDaemon(true);
+        handler.writerThread.start();
+        return handler;
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record))
+            return;
+        while (!records.offer(record)) { // the buffer is full: let the writer catch up
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            if (closed)
+                return;
+        }
+    }
+
+    /**
+     * Waits until all the records published so far are written to the log file.
+     */
+    @Override
+    public void flush() {
+        long target = records.produced();
+        while (written < target && writerThread.isAlive()) {
+            LockSupport.unpark(writerThread);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    /**
+     * The main loop of the writer thread.
+     */
+    private void writeRecords() {
+        LogRecord[] batch = new LogRecord[BATCH_SIZE];
+        while (true) {
+            boolean closing = closed;
+            int count = records.drainTo(batch);
+            try {
+                for (int i = 0; i < count; i++) {
+                    writeRecord(batch[i]);
+                    batch[i] = null;
+                }
+                if (count > 0 || closing)
+                    writer.flush();
+            } catch (IOException e) {
+                reportError("cannot write the log file", e, ErrorManager.WRITE_FAILURE);
+            }
+            written = records.consumed();
+            if (closing) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    reportError("cannot close the log file", e, ErrorManager.CLOSE_FAILURE);
+                }
+                return;
+            }
+            if (count < BATCH_SIZE)
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(WRITE_INTERVAL_MILLIS));
+        }
+    }
+
+    private void writeRecord(LogRecord record) throws IOException {
+        try {
+            writer.write(getFormatter().format(record));
+        } catch (RuntimeException e) {
+            reportError("cannot format a log record", e, ErrorManager.FORMAT_FAILURE);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ImageObserver;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class holds the card images, scaled to the cell size once, in the cells of a single atlas image.
+ * A card's image is loaded on its first use, and when the atlas is full the least recently used card makes room for
+ * it, so the atlas never takes more than the configured memory (config.cardCacheBytes) whatever the size of the deck.
+ *
+ * The images are loaded from the png files of the cards, or drawn by a CardRenderer from the features of the cards
+ * when configured so (config.proceduralCards) or when the deck has no png files (i.e. it is not the classic deck).
+ *
+ * Not thread safe: the atlas is only used from the event dispatch thread.
+ */
+class CardAtlas {
+
+    final int EMPTY = -1;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final Config config;
+    private final int width;
+    private final int height;
+
+    /**
+     * The cells of the atlas: cell i is at column i % columns and row i / columns.
+     */
+    private final BufferedImage atlas;
+    private final int capacity;
+    private final int columns;
+
+    /**
+     * Mapping between a card and the cell holding its image, from the least to the most recently used.
+     */
+    private final LinkedHashMap<Integer, Integer> cells = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final BufferedImage emptyCard;
+
+    /**
+     * Draws the cards that are not loaded from files (null if all of them are).
+     */
+    private final CardRenderer renderer;
+
+    /**
+     * The number of card images loaded so far (for testing).
+     */
+    private int loads;
+
+    /**
+     * @param config - the configuration (the deck, the cell size and the memory cap of the atlas).
+     * @param util   - converts a card to its features, for drawing it.
+     */
+    CardAtlas(Config config, Util util) {
+        this.config = config;
+        width = config.cellWidth;
+        height = config.cellHeight;
+        long cellBytes = (long) width * height * BYTES_PER_PIXEL;
+        // room for a full table at least, so that the cards on the table never evict each other
+        capacity = (int) Math.min(config.deckSize, Math.max(config.tableSize, config.cardCacheBytes / cellBytes));
+        columns = (int) Math.ceil(Math.sqrt(capacity));
+        int rows = (capacity + columns - 1) / columns;
+        atlas = new BufferedImage(columns * width, rows * height, BufferedImage.TYPE_INT_ARGB);
+        emptyCard = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        boolean files = !config.proceduralCards && config.featureSize < 10 && resource(fileName(0)) != null;
+        renderer = files ? null : new CardRenderer(util, config);
+        if (renderer == null)
+            drawScaled(load("cards/empty_card.png"), emptyCard, 0, 0);
+        else
+            draw(emptyCard, 0, 0, (g, x, y) -> renderer.drawEmpty(g, x, y, width, height));
+    }
+
+    /**
+     * The number of cards the atlas holds at most.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    int loads() {
+        return loads;
+    }
+
+    /**
+     * Draws the image of a card (loading it if needed).
+     *
+     * @param g        - the graphics to draw on.
+     * @param card     - the card id (EMPTY for the empty card image).
+     * @param x        - the x coordinate of the top left corner.
+     * @param y        - the y coordinate of the top left corner.
+     * @param observer - the component drawn on.
+     */
+    void draw(Graphics g, int card, int x, int y, ImageObserver observer) {
+        if (card == EMPTY) {
+            g.drawImage(emptyCard, x, y, observer);
+            return;
+        }
+        int cell = cellOf(card);
+        int cellX = cell % columns * width;
+        int cellY = cell / columns * height;
+        g.drawImage(atlas, x, y, x + width, y + height, cellX, cellY, cellX + width, cellY + height, observer);
+    }
+
+    /**
+     * @return - the cell holding the image of the card, after loading it there if needed.
+     */
+    int cellOf(int card) {
+        Integer cell = cells.get(card);
+        if (cell != null)
+            return cell;
+        if (cells.size() < capacity) {
+            cell = cells.size();
+        } else {
+            Iterator<Map.Entry<Integer, Integer>> eldest = cells.entrySet().iterator();
+            cell = eldest.next().getValue();
+            eldest.remove();
+        }
+        int x = cell % columns * width;
+        int y = cell / columns * height;
+        if (renderer == null)
+            drawScaled(load(fileName(card)), atlas, x, y);
+        else
+            draw(atlas, x, y, (g, cellX, cellY) -> renderer.draw(g, card, cellX, cellY, width, height));
+        cells.put(card, cell);
+        loads++;
+        return cell;
+    }
+
+    private String fileName(int card) {
+        return "cards/" + UserInterfaceSwing.intInBaseToPaddedString(card, config.featureCount, config.featureSize)
+                + ".png";
+    }
+
+    private URL resource(String filename) {
+        return getClass().getClassLoader().getResource(filename);
+    }
+
+    private BufferedImage load(String filename) {
+        URL imageResource = resource(filename);
+        if (imageResource == null)
+            throw new RuntimeException(new FileNotFoundException(filename));
+        try {
+            return ImageIO.read(imageResource);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Draws an image scaled to the cell size (once, so that painting is a plain copy).
+     */
+    private void drawScaled(BufferedImage image, BufferedImage target, int x, int y) {
+        draw(target, x, y, (g, cellX, cellY) -> {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, cellX, cellY, width, height, null);
+        });
+    }
+
+    private interface Drawing {
+        void draw(Graphics2D g, int x, int y);
+    }
+
+    /**
+     * Clears a cell of an image (of the evicted card's pixels) and draws on it.
+     */
+    private void draw(BufferedImage target, int x, int y, Drawing drawing) {
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(x, y, width, height);
+            g.setComposite(AlphaComposite.SrcOver);
+            g.clipRect(x, y, width, height);
+            drawing.draw(g, x, y);
+        } finally {
+            g.dispose();
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+
+/**
+ * This class draws cards from their features (see Util.cardToFeatures), for decks of any feature count and size.
+ * The first four features are drawn as on the classic cards, and any further features as borders and marks:
+ * 0 - the shape: oval, diamond, squiggle, then polygons of more and more sides.
+ * 1 - the color: red, green, purple, then more hues.
+ * 2 - the number of shapes: 1 to featureSize.
+ * 3 - the fill: solid, striped, empty, then hatches of other angles.
+ * 4 - the border: plain, then dashed with shorter and shorter dashes.
+ * 5 and on - a column of marks at the bottom of the card, one column per feature: as many marks as the value + 1.
+ */
+class CardRenderer {
+
+    private static final Color[] COLORS = {
+            new Color(0xE0, 0x20, 0x30), new Color(0x10, 0x90, 0x40), new Color(0x60, 0x20, 0x90)};
+
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color BORDER = Color.GRAY;
+
+    private final Util util;
+    private final int featureCount;
+
+    /**
+     * @param util   - converts a card to its features.
+     * @param config - the configuration of the deck.
+     */
+    CardRenderer(Util util, Config config) {
+        this.util = util;
+        featureCount = config.featureCount;
+    }
+
+    /**
+     * Draws a card.
+     *
+     * @param g      - the graphics to draw on.
+     * @param card   - the card id.
+     * @param x      - the x coordinate of the top left corner of the card.
+     * @param y      - the y coordinate of the top left corner of the card.
+     * @param width  - the width of the card.
+     * @param height - the height of the card.
+     */
+    void draw(Graphics2D g, int card, int x, int y, int width, int height) {
+        int[] features = util.cardToFeatures(card);
+        int margin = margin(width, height);
+        drawFace(g, borderStroke(feature(features, 4), margin), x, y, width, height);
+
+        Color color = color(feature(features, 1));
+        int count = feature(features, 2) + 1;
+        int fill = feature(features, 3);
+        double shapeWidth = (width - 4.0 * margin) / Math.max(3, count) * 0.8;
+        double shapeHeight = (height - 4.0 * margin) * (featureCount > 5 ? 0.55 : 0.7);
+        double gap = shapeWidth / 4;
+        double left = x + (width - count * shapeWidth - (count - 1) * gap) / 2;
+        double top = y + 2 * margin + (height - 4.0 * margin - shapeHeight) / (featureCount > 5 ? 3 : 2);
+        for (int i = 0; i < count; i++) {
+            Shape shape = shape(feature(features, 0), left + i * (shapeWidth + gap), top, shapeWidth, shapeHeight);
+            fill(g, shape, fill, color, margin);
+            g.setColor(color);
+            g.setStroke(new BasicStroke(Math.max(1.5f, margin / 2f)));
+            g.draw(shape);
+        }
+
+        for (int i = 5; i < featureCount; i++)
+            drawMarks(g, features[i] + 1, x + margin * 3 + (i - 5) * margin * 2, y + height - margin * 3, margin);
+    }
+
+    /**
+     * Draws the face of a card with no shapes on it (for empty slots).
+     */
+    void drawEmpty(Graphics2D g, int x, int y, int width, int height) {
+        drawFace(g, new BasicStroke(1), x, y, width, height);
+    }
+
+    private static int margin(int width, int height) {
+        return Math.max(2, Math.min(width, height) / 20);
+    }
+
+    private static void drawFace(Graphics2D g, Stroke border, int x, int y, int width, int height) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        int margin = margin(width, height);
+        RoundRectangle2D face = new RoundRectangle2D.Double(x + margin, y + margin, width - 2 * margin,
+                height - 2 * margin, 4 * margin, 4 * margin);
+        g.setColor(BACKGROUND);
+        g.fill(face);
+        g.setColor(BORDER);
+        g.setStroke(border);
+        g.draw(face);
+    }
+
+    private static int feature(int[] features, int i) {
+        return i < features.length ? features[i] : 0;
+    }
+
+    private static Color color(int value) {
+        if (value < COLORS.length)
+            return COLORS[value];
+        float hue = (0.6f + (value - COLORS.length) * 0.618034f) % 1; // from blue on, spread by the golden ratio
+        return Color.getHSBColor(hue, 0.8f, 0.75f);
+    }
+
+    private static Stroke borderStroke(int value, int margin) {
+        if (value == 0)
+            return new BasicStroke(1);
+        float dash = Math.max(1, 4f * margin / value);
+        return new BasicStroke(Math.max(2, margin / 2f), BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 10,
+                new float[]{dash, dash}, 0);
+    }
+
+    private static Shape shape(int value, double x, double y, double width, double height) {
+        switch (value) {
+            case 0:
+                return new RoundRectangle2D.Double(x, y, width, height, width, width);
+            case 1:
+                return polygon(new double[]{x + width / 2, x + width, x + width / 2, x},
+                        new double[]{y, y + height / 2, y + height, y + height / 2});
+            case 2:
+                return squiggle(x, y, width, height);
+            default:
+                int sides = value + 2;
+                double[] xs = new double[sides];
+                double[] ys = new double[sides];
+                for (int i = 0; i < sides; i++) {
+                    double angle = -Math.PI / 2 + 2 * Math.PI * i / sides;
+                    xs[i] = x + width / 2 + Math.cos(angle) * width / 2;
+                    ys[i] = y + height / 2 + Math.sin(angle) * height / 2;
+                }
+                return polygon(xs, ys);
+        }
+    }
+
+    private static Shape polygon(double[] xs, double[] ys) {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(xs[0], ys[0]);
+        for (int i = 1; i < xs.length; i++)
+            path.lineTo(xs[i], ys[i]);
+        path.closePath();
+        return path;
+    }
+
+    private static Shape squiggle(double x, double y, double w, double h) {
+        GeneralPath path = new GeneralPath();
+        path.moveTo(x + w * 0.3, y);
+        path.curveTo(x + w * 1.1, y - h * 0.05, x + w * 0.5, y + h * 0.45, x + w, y + h * 0.8);
+        path.curveTo(x + w * 1.05, y + h * 1.05, x + w * 0.3, y + h * 1.05, x + w * 0.1, y + h * 0.85);
+        path.curveTo(x - w * 0.1, y + h * 0.65, x + w * 0.5, y + h * 0.45, x, y + h * 0.2);
+        path.curveTo(x - w * 0.05, y + h * 0.05, x + w * 0.1, y, x + w * 0.3, y);
+        path.closePath();
+        return path;
+    }
+
+    /**
+     * Fills a shape: solid (0), striped (1), empty (2), or hatched at other angles (3 and on).
+     */
+    private static void fill(Graphics2D g, Shape shape, int value, Color color, int margin) {
+        if (value == 2)
+            return;
+        g.setColor(color);
+        if (value == 0) {
+            g.fill(shape);
+            return;
+        }
+        Shape clip = g.getClip();
+        g.clip(shape);
+        Rectangle bounds = shape.getBounds();
+        double angle = value == 1 ? 0 : Math.PI * (value - 2) / (value + 1);
+        double step = Math.max(3, margin / 1.5);
+        double diagonal = Math.hypot(bounds.width, bounds.height);
+        double cx = bounds.getCenterX();
+        double cy = bounds.getCenterY();
+        double dx = Math.cos(angle);
+        double dy = Math.sin(angle);
+        g.setStroke(new BasicStroke(1));
+        for (double d = -diagonal / 2; d <= diagonal / 2; d += step) {
+            // a line at distance d from the center, perpendicular to the (dx, dy) direction
+            double px = cx + d * dx;
+            double py = cy + d * dy;
+            g.draw(new Line2D.Double(px - dy * diagonal, py + dx * diagonal, px + dy * diagonal,
+                    py - dx * diagonal));
+        }
+        g.setClip(clip);
+    }
+
+    private static void drawMarks(Graphics2D g, int marks, int x, int y, int size) {
+        g.setColor(BORDER);
+        for (int i = 0; i < marks; i++)
+            g.fill(new Ellipse2D.Double(x, y - i * size * 1.2, size, size));
+    }
+}
@@ -0,0 +1,62 @@
+package bguspl.set;
+
+/**
+ * This interface is the game's source of time: everything in the game that reads the time or waits for a while goes
+ * through the clock of the game's environment.
+ */
+public interface Clock {
+
+    /**
+     * A task scheduled on a clock.
+     */
+    interface Timeout {
+
+        /**
+         * Cancels the task (if it did not run yet).
+         */
+        void cancel();
+    }
+
+    /**
+     * @return - the current time, in milliseconds.
+     */
+    long currentTimeMillis();
+
+    /**
+     * Lets the given time pass.
+     *
+     * @param millis - the number of milliseconds to let pass.
+     * @throws InterruptedException - if the thread was interrupted while waiting.
+     */
+    void sleep(long millis) throws InterruptedException;
+
+    /**
+     * Runs a short task once the given time has passed on this clock.
+     *
+     * @param task        - the task to run (it must not block).
+     * @param delayMillis - the number of milliseconds to let pass first.
+     * @return - the timeout of the task, for cancelling it.
+     */
+    Timeout schedule(Runnable task, long delayMillis);
+
+    /**
+     * The wall clock (the game threads wait for real, and the tasks run on the shared timer wheel).
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void sleep(long millis) throws InterruptedException {
+            if (millis > 0)
+                Thread.sleep(millis);
+        }
+
+        @Override
+        public Timeout schedule(Runnable task, long delayMillis) {
+            return TimerWheel.shared().schedule(task, delayMillis);
+        }
+    };
+}
@@ -21,6 +21,21 @@ public class Config {
     public final long randomSpinMin;
     public final long randomSpinMax;
 
+    /**
+     * The seed of the game's random choices (0 for a different game every run)
+     */
+    public final long randomSeed;
+
+    /**
+     * The file to record the game's events to, for replaying it (empty for no journal, see Journal)
+     */
+    public final String journalFile;
+
+    /**
+     * The number of milliseconds between two snapshots of the metrics in the log (0 for none, see Metrics)
+     */
+    public final long metricsDumpMillis;
+
     /**
      * The number of features on the cards (e.g. shape, color etc.)
      */
@@ -81,11 +96,62 @@ public class Config {
      */
     public final long tableDelayMillis;
 
+    /**
+     * The number of milliseconds between two key presses of a computer player (0 for no pacing)
+     */
+    public final long computerKeyPressMillis;
+
+    /**
+     * The strategy of each computer player: random, perfect or human-like (ignored for human players)
+     */
+    public final String[] playerStrategies;
+
+    /**
+     * The average number of milliseconds it takes a human-like computer player to spot a set
+     */
+    public final long humanLikeReactionMillis;
+
+    /**
+     * The probability that a human-like computer player gets one of the cards of a set wrong
+     */
+    public final double humanLikeErrorRate;
+
+    /**
+     * Whether the dealer and the players run on virtual threads (ThreadingMode=virtual) or platform threads
+     * (ThreadingMode=platform)
+     */
+    public final boolean virtualThreads;
+
     /**
      * The number of milliseconds to pause at the end of the game before closing
      */
     public final long endGamePauseMillies;
 
+    /**
+     * The number of games a game server runs (see GameServer)
+     */
+    public final int serverGames;
+
+    /**
+     * The maximal number of games a game server runs at the same time
+     */
+    public final int serverConcurrentGames;
+
+    /**
+     * The tcp port remote clients play on (0 for no network server, see NetworkServer)
+     */
+    public final int networkPort;
+
+    /**
+     * The number of threads the network clients are multiplexed over
+     */
+    public final int networkSelectorThreads;
+
+    /**
+     * The maximal number of bytes waiting to be sent to a network client before it is disconnected
+     */
+    public final int networkClientBufferBytes;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
@@ -117,6 +183,17 @@ public class Config {
      */
     public final int cellHeight;
 
+    /**
+     * The maximal number of bytes the card images on the screen may take (see CardAtlas)
+     */
+    public final long cardCacheBytes;
+
+    /**
+     * Whether to draw the cards from their features instead of loading their images (decks with no images are always
+     * drawn, see CardRenderer)
+     */
+    public final boolean proceduralCards;
+
     /**
      * The Width (in pixeks) of player name cell
      */
@@ -193,6 +270,10 @@ public class Config {
         if (randomSpinMax < randomSpinMin || randomSpinMin < 0)
             logger.severe("invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
 
+        randomSeed = Long.parseLong(properties.getProperty("RandomSeed", "0"));
+        journalFile = properties.getProperty("JournalFile", "").trim();
+        metricsDumpMillis = (long) (Double.parseDouble(properties.getProperty("MetricsDumpSeconds", "0")) * 1000.0);
+
         // cards settings
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
@@ -209,8 +290,29 @@ public class Config {
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
+        double keyPressesPerSecond = Double.parseDouble(properties.getProperty("ComputerKeyPressesPerSecond", "10"));
+        computerKeyPressMillis = keyPressesPerSecond > 0 ? (long) (1000.0 / keyPressesPerSecond) : 0;
+        String[] strategies = properties.getProperty("PlayerStrategies", "random").split(",");
+        playerStrategies = new String[players];
+        Arrays.setAll(playerStrategies, i -> i < strategies.length ? strategies[i].trim() : "random");
+        humanLikeReactionMillis = (long) (Double.parseDouble(properties.getProperty("HumanLikeReactionSeconds", "1.5")) * 1000.0);
+        humanLikeErrorRate = Double.parseDouble(properties.getProperty("HumanLikeErrorRate", "0.1"));
+        String threadingMode = properties.getProperty("ThreadingMode", "platform").trim();
+        virtualThreads = threadingMode.equalsIgnoreCase("virtual");
+        if (!virtualThreads && !threadingMode.equalsIgnoreCase("platform"))
+            logger.severe("warning: unknown threading mode " + threadingMode + ", using platform threads.");
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
 
+        // server settings
+        serverGames = Integer.parseInt(properties.getProperty("ServerGames", "1"));
+        serverConcurrentGames = Integer.parseInt(properties.getProperty("ServerConcurrentGames",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+        // network settings
+        networkPort = Integer.parseInt(properties.getProperty("NetworkPort", "0"));
+        networkSelectorThreads = Integer.parseInt(properties.getProperty("NetworkSelectorThreads", "2"));
+        networkClientBufferBytes = Integer.parseInt(properties.getProperty("NetworkClientBufferKilobytes", "64")) * 1024;
+
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
         playerNames = new String[players];
@@ -221,6 +323,8 @@ public class Config {
         tableSize = rows * columns;
         cellWidth = Integer.parseInt(properties.getProperty("CellWidth", "258"));
         cellHeight = Integer.parseInt(properties.getProperty("CellHeight", "167"));
+        cardCacheBytes = (long) (Double.parseDouble(properties.getProperty("CardCacheMegabytes", "32")) * 1024 * 1024);
+        proceduralCards = Boolean.parseBoolean(properties.getProperty("ProceduralCards", "False"));
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
         playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
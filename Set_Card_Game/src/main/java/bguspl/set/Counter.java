@@ -0,0 +1,46 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts events, from any number of threads, without contending on a single variable.
+ */
+public class Counter implements CounterMXBean {
+
+    public final String name;
+    public final String description;
+
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * @param name        - the name of the counter (e.g. in JMX).
+     * @param description - what the counter counts.
+     */
+    public Counter(String name, String description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long events) {
+        count.add(events);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + getCount();
+    }
+}
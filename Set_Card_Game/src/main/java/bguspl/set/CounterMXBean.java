@@ -0,0 +1,11 @@
+package bguspl.set;
+
+/**
+ * This interface is the JMX view of a Counter.
+ */
+public interface CounterMXBean {
+
+    String getDescription();
+
+    long getCount();
+}
@@ -1,5 +1,6 @@
 package bguspl.set;
 
+import java.util.Random;
 import java.util.logging.Logger;
 
 public class Env {
@@ -9,10 +10,59 @@ public class Env {
     public final UserInterface ui;
     public final Util util;
 
+    /**
+     * The game's source of time (the wall clock, or a virtual one in simulations).
+     */
+    public final Clock clock;
+
+    /**
+     * The game's source of randomness (seeded by config.randomSeed, if set, so that a game can be replayed).
+     */
+    public final Random random;
+
+    /**
+     * The journal the game's events are recorded to (Journal.NONE if the game is not journaled).
+     */
+    public final Journal journal;
+
+    /**
+     * The counters and latency recorders of the game (may be shared by many games, see GameServer).
+     */
+    public final Metrics metrics;
+
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, Journal.NONE, new Metrics());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Journal journal, Metrics metrics) {
+        this(logger, config, ui, util, Clock.SYSTEM,
+                config.randomSeed != 0 ? new Random(config.randomSeed) : new Random(), journal, metrics);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Clock clock, Random random) {
+        this(logger, config, ui, util, clock, random, Journal.NONE, new Metrics());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, Clock clock, Random random,
+               Journal journal, Metrics metrics) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.clock = clock;
+        this.random = random;
+        this.journal = journal;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates a thread of the kind configured (see config.virtualThreads), not started yet.
+     *
+     * @param target - the runnable the thread runs.
+     * @param name   - the name of the thread.
+     * @return - the new thread.
+     */
+    public Thread newThread(Runnable target, String name) {
+        return (config.virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform()).name(name).unstarted(target);
     }
 }
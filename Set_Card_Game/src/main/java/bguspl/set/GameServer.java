@@ -0,0 +1,296 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/**
+ * This class hosts many independent games in a single process (e.g. for tournaments of computer players).
+ * Each game has its own environment, table, dealer and players, and runs without a user interface. The dealers run
+ * on a shared pool of config.serverConcurrentGames threads, so at most that many games run at the same time and the
+ * rest wait for their turn.
+ */
+public class GameServer {
+
+    /**
+     * The states of a game along its lifecycle.
+     */
+    public enum State {
+        CREATED,
+        RUNNING,
+        FINISHED,
+        TERMINATED
+    }
+
+    /**
+     * A single game hosted by the server.
+     */
+    public static class Game {
+
+        public final int id;
+        public final Env env;
+        public final Table table;
+        public final Dealer dealer;
+        public final Player[] players;
+
+        private volatile State state = State.CREATED;
+        private long startTime;
+        private long endTime;
+        private Future<?> future;
+
+        private Game(int id, Env env) {
+            this.id = id;
+            this.env = env;
+            table = new Table(env);
+            players = new Player[env.config.players];
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, false);
+        }
+
+        public State state() {
+            return state;
+        }
+
+        /**
+         * @return - the scores of the players, by player id.
+         */
+        public int[] scores() {
+            return Arrays.stream(players).mapToInt(Player::score).toArray();
+        }
+
+        /**
+         * @return - the ids of the players with the highest score.
+         */
+        public int[] winners() {
+            int max = Arrays.stream(players).mapToInt(Player::score).max().orElse(0);
+            return Arrays.stream(players).filter(player -> player.score() == max).mapToInt(player -> player.id).toArray();
+        }
+
+        /**
+         * @return - the number of milliseconds the game ran (so far, if it is still running).
+         */
+        public long durationMillis() {
+            if (startTime == 0)
+                return 0;
+            return (endTime == 0 ? System.currentTimeMillis() : endTime) - startTime;
+        }
+    }
+
+    /**
+     * Aggregate statistics of the games of the server.
+     */
+    public static class Stats {
+        public int created;
+        public int running;
+        public int finished;
+        public int terminated;
+        public long points;
+        public long totalDurationMillis;
+        public long maxDurationMillis;
+
+        @Override
+        public String toString() {
+            int done = finished + terminated;
+            return "games: " + created + " created, " + running + " running, " + finished + " finished, "
+                    + terminated + " terminated; points: " + points + "; duration: average "
+                    + (done == 0 ? 0 : totalDurationMillis / done) + " ms, max " + maxDurationMillis + " ms";
+        }
+    }
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+
+    /**
+     * The shared pool the dealers run on.
+     */
+    private final ExecutorService scheduler;
+
+    private final List<Game> games = new ArrayList<>();
+
+    /**
+     * The metrics of all the games together.
+     */
+    public final Metrics metrics = new Metrics();
+
+    /**
+     * @param logger - the logger all the games log to.
+     * @param config - the configuration all the games use.
+     */
+    public GameServer(Logger logger, Config config) {
+        this.logger = logger;
+        this.config = config;
+        util = new UtilImpl(config);
+        AtomicInteger threads = new AtomicInteger();
+        scheduler = Executors.newFixedThreadPool(Math.max(1, config.serverConcurrentGames), target ->
+                (config.virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform())
+                        .name("dealer-" + threads.incrementAndGet()).unstarted(target));
+    }
+
+    /**
+     * Creates a new game (not running yet). With a configured random seed, game i deals as a single game seeded by
+     * config.randomSeed + i would.
+     *
+     * @return - the game created.
+     */
+    public synchronized Game create() {
+        Random random = config.randomSeed != 0 ? new Random(config.randomSeed + games.size()) : new Random();
+        Env env = new Env(logger, config, new UserInterfaceNone(), util, Clock.SYSTEM, random, Journal.NONE, metrics);
+        Game game = new Game(games.size(), env);
+        games.add(game);
+        return game;
+    }
+
+    /**
+     * Schedules a game to run, as soon as there is room for it.
+     *
+     * @param game - the game to run.
+     */
+    public synchronized void run(Game game) {
+        if (game.state != State.CREATED || game.future != null)
+            return;
+        game.future = scheduler.submit(() -> {
+            synchronized (this) {
+                if (game.state != State.CREATED)
+                    return; // terminated while waiting for its turn
+                game.startTime = System.currentTimeMillis();
+                game.state = State.RUNNING;
+            }
+            logger.info("game " + game.id + " starting.");
+            game.dealer.run();
+            synchronized (this) {
+                game.endTime = System.currentTimeMillis();
+                if (game.state == State.RUNNING)
+                    game.state = State.FINISHED;
+            }
+            logger.info("game " + game.id + " ended, scores: " + Arrays.toString(game.scores()));
+        });
+    }
+
+    /**
+     * Terminates a game: a running game ends as soon as its dealer notices, and a game that did not start will not.
+     *
+     * @param game - the game to terminate.
+     */
+    public void terminate(Game game) {
+        synchronized (this) {
+            if (game.state == State.FINISHED || game.state == State.TERMINATED)
+                return;
+            boolean running = game.state == State.RUNNING;
+            game.state = State.TERMINATED;
+            if (!running)
+                return;
+        }
+        game.dealer.terminate();
+    }
+
+    /**
+     * Waits for a game to end.
+     *
+     * @param game - the game to wait for.
+     * @throws InterruptedException - if interrupted while waiting.
+     */
+    public void await(Game game) throws InterruptedException {
+        Future<?> future;
+        synchronized (this) {
+            future = game.future;
+        }
+        if (future == null)
+            return;
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            logger.severe("game " + game.id + " failed: " + e.getCause());
+        }
+    }
+
+    /**
+     * @return - a snapshot of the games of the server.
+     */
+    public synchronized List<Game> games() {
+        return new ArrayList<>(games);
+    }
+
+    /**
+     * @return - the aggregate statistics of the games of the server.
+     */
+    public synchronized Stats stats() {
+        Stats stats = new Stats();
+        for (Game game : games) {
+            stats.created++;
+            switch (game.state) {
+                case RUNNING:
+                    stats.running++;
+                    break;
+                case FINISHED:
+                    stats.finished++;
+                    break;
+                case TERMINATED:
+                    stats.terminated++;
+                    break;
+                default:
+                    break;
+            }
+            stats.points += Arrays.stream(game.scores()).sum();
+            if (game.endTime != 0) {
+                stats.totalDurationMillis += game.durationMillis();
+                stats.maxDurationMillis = Math.max(stats.maxDurationMillis, game.durationMillis());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Terminates all the games and stops the scheduler.
+     */
+    public void shutdown() {
+        games().forEach(this::terminate);
+        scheduler.shutdown();
+        metrics.close();
+    }
+
+    /**
+     * Runs config.serverGames games of computer players (the configured human players are played by the computer too)
+     * and prints their results.
+     *
+     * @param args - unused.
+     */
+    public static void main(String[] args) throws InterruptedException {
+
+        Logger logger = Main.initLogger();
+        Config config = new Config(logger, "config.properties");
+        GameServer server = new GameServer(logger, config);
+        server.metrics.register("server", logger);
+        server.metrics.startDump(logger, config.metricsDumpMillis);
+
+        List<Game> games = new ArrayList<>();
+        for (int i = 0; i < config.serverGames; i++) {
+            Game game = server.create();
+            games.add(game);
+            server.run(game);
+        }
+        for (Game game : games) {
+            server.await(game);
+            System.out.println("game " + game.id + ": scores " + Arrays.toString(game.scores()) + ", winners "
+                    + Arrays.toString(Arrays.stream(game.winners()).map(id -> id + 1).toArray()) + ", "
+                    + game.durationMillis() + " ms");
+        }
+        System.out.println(server.stats());
+        System.out.println(server.metrics.snapshot());
+        server.shutdown();
+        for (Handler h : logger.getHandlers()) h.flush();
+    }
+}
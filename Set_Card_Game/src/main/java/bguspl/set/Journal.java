@@ -0,0 +1,213 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * This class is an append-only binary journal of the events of a game (for post-mortems, and for replaying a real
+ * game, see Replay). The table, the dealer and the players record their events as they happen, from any thread.
+ *
+ * The journal starts with a header of HEADER_SIZE bytes: the magic number, the format version, the record size, the
+ * start time (in millis) and the players, table size, feature size and feature count of the game. It is followed by
+ * records of RECORD_SIZE bytes each: the time (in millis since the start), the event, the player (-1 if none), the
+ * slot (-1 if none) and a value whose meaning depends on the event (see Event).
+ */
+public class Journal {
+
+    /**
+     * The events of a game, written as their ordinal.
+     */
+    public enum Event {
+        CARD_PLACED,    // value: the card
+        CARD_REMOVED,   // value: the card
+        TOKEN_PLACED,
+        TOKEN_REMOVED,
+        TOKENS_REMOVED, // all the tokens on the slot
+        CLAIM,          // one record per slot of the claimed set; value: the position of the slot in the set
+        VERDICT,        // value: STALE, SET or NOT_SET
+        SCORE,          // value: the new score
+        FREEZE,         // value: the remaining freeze millis (0 when the freeze is over)
+        RESHUFFLE,      // value: the number of cards in the deck
+        WINNER
+    }
+
+    /**
+     * The verdicts on a claim: its cards or tokens were gone by the time the dealer got to it, it was a legal set, or
+     * it was not.
+     */
+    public static final int STALE = 0;
+    public static final int SET = 1;
+    public static final int NOT_SET = 2;
+
+    public static final int MAGIC = 0x5345544A; // "SETJ"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final short RECORD_SIZE = 16;
+
+    /**
+     * The number of records buffered before they are written to the file.
+     */
+    private static final int BUFFER_RECORDS = 4096;
+
+    /**
+     * A journal that records nothing (for games that are not journaled).
+     */
+    public static final Journal NONE = new Journal();
+
+    private final Logger logger;
+    private final Clock clock;
+    private final long startTime;
+
+    /**
+     * The file of the journal (null if the journal records nothing, or could not be written).
+     */
+    private volatile FileChannel channel;
+
+    /**
+     * The records not written to the file yet. Guarded by the lock (a lock rather than a monitor, so that a virtual
+     * thread writing to the file while holding it does not pin its carrier).
+     */
+    private final ByteBuffer buffer;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Journal() {
+        logger = null;
+        clock = null;
+        startTime = 0;
+        buffer = null;
+    }
+
+    private Journal(Logger logger, Config config, Clock clock, FileChannel channel) {
+        this.logger = logger;
+        this.clock = clock;
+        this.channel = channel;
+        startTime = clock.currentTimeMillis();
+        buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_SIZE);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort(RECORD_SIZE).putLong(startTime)
+                .putInt(config.players).putInt(config.tableSize).putInt(config.featureSize).putInt(config.featureCount);
+        write();
+    }
+
+    /**
+     * Creates a journal file (replacing the file if it exists).
+     *
+     * @param path   - the path of the journal file.
+     * @param logger - the logger to report write errors to.
+     * @param config - the configuration of the game.
+     * @param clock  - the clock the times of the events are taken from.
+     * @return - the journal.
+     * @throws IOException - if the file could not be created.
+     */
+    public static Journal open(Path path, Logger logger, Config config, Clock clock) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        return new Journal(logger, config, clock, channel);
+    }
+
+    /**
+     * Records an event.
+     *
+     * @param event  - the event.
+     * @param player - the player of the event (-1 if none).
+     * @param slot   - the slot of the event (-1 if none).
+     * @param value  - the value of the event (see Event).
+     */
+    public void record(Event event, int player, int slot, int value) {
+        if (channel == null)
+            return;
+        lock.lock();
+        try {
+            put(event, player, slot, value);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a set claim, as one CLAIM record per slot (never interleaved with the records of other events).
+     *
+     * @param player - the claiming player.
+     * @param slots  - the slots of the claimed set.
+     */
+    public void recordClaim(int player, int[] slots) {
+        if (channel == null)
+            return;
+        lock.lock();
+        try {
+            for (int i = 0; i < slots.length; i++)
+                put(Event.CLAIM, player, slots[i], i);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     */
+    public void flush() {
+        if (channel == null)
+            return;
+        lock.lock();
+        try {
+            write();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the buffered records and closes the file (records after this are ignored).
+     */
+    public void close() {
+        if (channel == null)
+            return;
+        lock.lock();
+        try {
+            write();
+            if (channel != null)
+                channel.close();
+        } catch (IOException e) {
+            logger.severe("error closing the journal: " + e);
+        } finally {
+            channel = null;
+            lock.unlock();
+        }
+    }
+
+    private void put(Event event, int player, int slot, int value) {
+        if (channel == null)
+            return; // closed meanwhile
+        if (buffer.remaining() < RECORD_SIZE)
+            write();
+        buffer.putInt((int) (clock.currentTimeMillis() - startTime)).putShort((short) event.ordinal())
+                .putShort((short) player).putInt(slot).putInt(value);
+    }
+
+    /**
+     * Writes the buffer to the file; if that fails, the journal stops recording (the game goes on).
+     */
+    private void write() {
+        if (channel == null) {
+            buffer.clear(); // could not be written before
+            return;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        } catch (IOException e) {
+            logger.severe("error writing the journal, no more events will be recorded: " + e);
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,151 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class records a distribution of latencies (in nanos), from any number of threads, without locks or
+ * allocation. As in HdrHistogram, the buckets are log-linear: values below 2 * SUB_BUCKETS have a bucket each, and
+ * every power of 2 above is split into SUB_BUCKETS buckets, so a percentile is accurate to within 1 / SUB_BUCKETS
+ * (about 3%) of its value whatever its magnitude.
+ */
+public class LatencyRecorder implements LatencyRecorderMXBean {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Enough buckets for any non-negative long.
+     */
+    private static final int BUCKETS = 2 * SUB_BUCKETS + (Long.SIZE - 2 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    public final String name;
+    public final String description;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param name        - the name of the recorder (e.g. in JMX).
+     * @param description - what the recorded latencies are.
+     */
+    public LatencyRecorder(String name, String description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos - the latency, in nanos (negative latencies are recorded as 0).
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        counts.getAndIncrement(bucketOf(nanos));
+        sum.add(nanos);
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos))
+            current = max.get();
+    }
+
+    /**
+     * Records the time since a start time.
+     *
+     * @param startNanos - the start time, as given by System.nanoTime().
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS)
+            return (int) value;
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return 2 * SUB_BUCKETS + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return - the lowest value in a bucket.
+     */
+    static long lowestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS)
+            return bucket;
+        int shift = (bucket - 2 * SUB_BUCKETS) / SUB_BUCKETS + 1;
+        return (long) ((bucket - 2 * SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    @Override
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            count += counts.get(i);
+        return count;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long count = getCount();
+        return count == 0 ? 0 : sum.sum() / NANOS_PER_MICRO / count;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return max.get() / NANOS_PER_MICRO;
+    }
+
+    /**
+     * @param percentile - the percentile (between 0 and 100).
+     * @return - the latency (in nanos) that the given percentage of the recorded latencies do not exceed (up to
+     * the accuracy of the buckets), or 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long count = getCount();
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank)
+                return Math.min(i + 1 < BUCKETS ? lowestValueOf(i + 1) - 1 : Long.MAX_VALUE, max.get());
+        }
+        return max.get(); // recorded meanwhile
+    }
+
+    @Override
+    public double getP50Micros() {
+        return percentile(50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return percentile(90) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return percentile(99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return percentile(99.9) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-16s count %d, mean %.1f us, p50 %.1f us, p90 %.1f us, p99 %.1f us, p99.9 %.1f us, "
+                        + "max %.1f us", name, getCount(), getMeanMicros(), getP50Micros(), getP90Micros(),
+                getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
@@ -0,0 +1,23 @@
+package bguspl.set;
+
+/**
+ * This interface is the JMX view of a LatencyRecorder (the latencies are in micros).
+ */
+public interface LatencyRecorderMXBean {
+
+    String getDescription();
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
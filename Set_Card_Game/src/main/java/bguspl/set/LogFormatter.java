@@ -0,0 +1,72 @@
+package bguspl.set;
+
+import java.util.Date;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * This class formats the log records, given a format of the timestamp (1), the level (2) and the message (3).
+ * Messages may have parameters, {0}, {1} etc., which are filled in only when the record is formatted (i.e. on the log
+ * writer thread, not by the thread that logs).
+ *
+ * Formatting the timestamp is the expensive part, so the text around the message is formatted once per millisecond and
+ * level, and reused for all the records of that millisecond. Not thread safe: a formatter serves a single log writer.
+ */
+public class LogFormatter extends Formatter {
+
+    private static final String MESSAGE_MARK = "\u0000";
+
+    private final String format;
+
+    /**
+     * The text before and after the message for the last millisecond and level formatted.
+     */
+    private long lastMillis = -1;
+    private Level lastLevel;
+    private String prefix;
+    private String suffix;
+
+    public LogFormatter(String format) {
+        this.format = format;
+    }
+
+    @Override
+    public String format(LogRecord record) {
+        if (record.getMillis() != lastMillis || record.getLevel() != lastLevel) {
+            String text = String.format(format, new Date(record.getMillis()), record.getLevel().getLocalizedName(),
+                    MESSAGE_MARK);
+            int mark = text.indexOf(MESSAGE_MARK);
+            if (mark < 0 || text.indexOf(MESSAGE_MARK, mark + 1) >= 0) // the message is not shown exactly once
+                return String.format(format, new Date(record.getMillis()), record.getLevel().getLocalizedName(),
+                        formatMessage(record));
+            prefix = text.substring(0, mark);
+            suffix = text.substring(mark + MESSAGE_MARK.length());
+            lastMillis = record.getMillis();
+            lastLevel = record.getLevel();
+        }
+        return prefix + formatMessage(record) + suffix;
+    }
+
+    /**
+     * Fills in the parameters of the message with their plain string values.
+     */
+    @Override
+    public String formatMessage(LogRecord record) {
+        String message = record.getMessage();
+        Object[] parameters = record.getParameters();
+        if (message == null || parameters == null || parameters.length == 0)
+            return message;
+        StringBuilder sb = new StringBuilder(message.length() + 16 * parameters.length);
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (c == '{' && i + 2 < message.length() && message.charAt(i + 2) == '}'
+                    && message.charAt(i + 1) >= '0' && message.charAt(i + 1) - '0' < parameters.length) {
+                sb.append(parameters[message.charAt(i + 1) - '0']);
+                i += 2;
+            } else
+                sb.append(c);
+        }
+        return sb.toString();
+    }
+}
@@ -6,10 +6,10 @@ import bguspl.set.ex.Table;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.logging.*;
 
 /**
@@ -21,6 +21,11 @@ public class Main {
     private static Thread mainThread;
 
     private static boolean xButtonPressed = false;
+
+    /**
+     * The number of log records that may wait to be written to the log file.
+     */
+    private static final int LOG_BUFFER_SIZE = 1 << 16;
     private static Logger logger;
 
     public static void xButtonPressed() throws InterruptedException {
@@ -55,9 +60,31 @@ public class Main {
             if (config.humanPlayers > 0)
                 logger.severe("warning: running with human players with no user interface");
         }
+        if (config.networkPort != 0) {
+            NetworkServer server = new NetworkServer(logger, config, players, ui);
+            try {
+                server.start();
+                ui = server;
+            } catch (IOException e) {
+                logger.severe("error starting the network server on port " + config.networkPort + ": " + e);
+            }
+        }
         ui = new UserInterfaceDecorator(logger, util, ui);
 
-        Env env = new Env(logger, config, ui, util);
+        Journal journal = Journal.NONE;
+        if (!config.journalFile.isEmpty()) {
+            try {
+                journal = Journal.open(Paths.get(config.journalFile), logger, config, Clock.SYSTEM);
+            } catch (IOException e) {
+                logger.severe("error creating the journal " + config.journalFile + ": " + e);
+            }
+        }
+
+        Metrics metrics = new Metrics();
+        metrics.register("game", logger);
+        metrics.startDump(logger, config.metricsDumpMillis);
+
+        Env env = new Env(logger, config, ui, util, journal, metrics);
 
         // create the game entities
         Table table = new Table(env);
@@ -66,7 +93,7 @@ public class Main {
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
 
         // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
+        ThreadLogger dealerThread = new ThreadLogger(env.newThread(dealer, "dealer"), logger);
         dealerThread.startWithLog();
 
         try {
@@ -79,19 +106,23 @@ public class Main {
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
             if (!xButtonPressed) env.ui.dispose();
+            env.journal.close();
+            logger.info(metrics.snapshot());
+            metrics.close();
             for (Handler h : logger.getHandlers()) h.flush();
         }
     }
 
-    private static Logger initLogger() {
+    static Logger initLogger() {
 
         //just to make our log file nicer :)
         SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
-        FileHandler handler;
+        Handler handler;
         try {
             //noinspection ResultOfMethodCallIgnored
             new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+            handler = AsyncLogHandler.start("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log",
+                    LOG_BUFFER_SIZE);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -106,15 +137,8 @@ public class Main {
 
     public static void setLoggerLevelAndFormat(Logger logger, Level level, String format) {
         Handler[] handlers = logger.getHandlers();
-        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
-            // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
-            @Override
-            public synchronized String format(LogRecord lr) {
-                return String.format(format, new Date(lr.getMillis()),
-                        lr.getLevel().getLocalizedName(), lr.getMessage()
-                );
-            }
-        }));
+        // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
+        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new LogFormatter(format)));
         logger.setLevel(level);
     }
 }
@@ -0,0 +1,162 @@
+package bguspl.set;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * This class holds the counters and the latency recorders the dealer, the players and the table update on their hot
+ * paths. Updating them takes a few nanos and never blocks, so they are always on.
+ *
+ * The metrics can be read as a snapshot (see snapshot and startDump), and through JMX (see register): each counter and
+ * recorder is an MXBean named bguspl.set:scope=&lt;scope&gt;,type=Counter|Latency,name=&lt;name&gt;, and the
+ * snapshot and the penalty rate are in bguspl.set:scope=&lt;scope&gt;,type=Metrics.
+ */
+public class Metrics implements MetricsMXBean {
+
+    private final List<Counter> counters = new ArrayList<>();
+    private final List<LatencyRecorder> recorders = new ArrayList<>();
+
+    /**
+     * Set claims and the dealer's verdicts on them.
+     */
+    public final Counter claims = counter("claims", "set claims submitted to the dealer");
+    public final Counter claimsDropped = counter("claimsDropped", "set claims dropped, as too many were waiting");
+    public final Counter claimsSet = counter("claimsSet", "claims found to be a legal set");
+    public final Counter claimsNotSet = counter("claimsNotSet", "claims found not to be a legal set (penalized)");
+    public final Counter claimsStale = counter("claimsStale", "claims whose cards or tokens were gone by the verdict");
+    public final LatencyRecorder claimToVerdict = recorder("claimToVerdict",
+            "from a claim's submission to the dealer's verdict");
+
+    /**
+     * The dealer's loop.
+     */
+    public final Counter dealerWakeups = counter("dealerWakeups", "times the dealer woke up to handle an event");
+    public final Counter dealerIdleWakeups = counter("dealerIdleWakeups",
+            "times the dealer woke up with no event due");
+    public final Counter reshuffles = counter("reshuffles", "times the dealer dealt a new table");
+    public final LatencyRecorder dealerClaims = recorder("dealerClaims",
+            "the dealer adjudicating the waiting claims and removing the cards of the sets");
+    public final LatencyRecorder dealerPlaceCards = recorder("dealerPlaceCards",
+            "the dealer placing cards from the deck on the table");
+
+    /**
+     * The players and the table.
+     */
+    public final Counter keyPresses = counter("keyPresses", "key presses queued for the players");
+    public final Counter keyPressesCoalesced = counter("keyPressesCoalesced",
+            "key presses cancelled out with the key press on the same slot waiting before them");
+    public final Counter keyPressesDropped = counter("keyPressesDropped",
+            "key presses dropped, as too many were waiting");
+    public final Counter keyPressesEmptySlot = counter("keyPressesEmptySlot", "key presses on slots with no card");
+    public final LatencyRecorder keyToToken = recorder("keyToToken",
+            "from a key press to its token being placed or removed");
+    public final LatencyRecorder tableCardOp = recorder("tableCardOp",
+            "placing or removing a card on the table (without the table delay)");
+    public final LatencyRecorder tableTokenOp = recorder("tableTokenOp", "placing or removing a token on the table");
+    public final LatencyRecorder findSet = recorder("findSet", "searching the table for a legal set");
+
+    private MBeanServer server;
+    private final List<ObjectName> registered = new ArrayList<>();
+    private Thread dumpThread;
+
+    private Counter counter(String name, String description) {
+        Counter counter = new Counter(name, description);
+        counters.add(counter);
+        return counter;
+    }
+
+    private LatencyRecorder recorder(String name, String description) {
+        LatencyRecorder recorder = new LatencyRecorder(name, description);
+        recorders.add(recorder);
+        return recorder;
+    }
+
+    @Override
+    public double getPenaltyRate() {
+        long adjudicated = claimsSet.getCount() + claimsNotSet.getCount();
+        return adjudicated == 0 ? 0 : (double) claimsNotSet.getCount() / adjudicated;
+    }
+
+    /**
+     * @return - the current values of all the metrics, one line per recorder.
+     */
+    @Override
+    public String getSnapshot() {
+        return snapshot();
+    }
+
+    public String snapshot() {
+        StringBuilder snapshot = new StringBuilder("metrics:");
+        for (Counter counter : counters)
+            snapshot.append(' ').append(counter).append(',');
+        snapshot.append(String.format(" penalty rate %.1f%%", 100 * getPenaltyRate()));
+        for (LatencyRecorder recorder : recorders)
+            snapshot.append(System.lineSeparator()).append("    ").append(recorder);
+        return snapshot.toString();
+    }
+
+    /**
+     * Registers the metrics as MXBeans in the platform MBean server.
+     *
+     * @param scope  - the scope of the metrics in their names (e.g. "game" or "server").
+     * @param logger - the logger to report registration errors to.
+     */
+    public synchronized void register(String scope, Logger logger) {
+        server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(new ObjectName("bguspl.set:scope=" + scope + ",type=Metrics"), this);
+            for (Counter counter : counters)
+                register(new ObjectName("bguspl.set:scope=" + scope + ",type=Counter,name=" + counter.name), counter);
+            for (LatencyRecorder recorder : recorders)
+                register(new ObjectName("bguspl.set:scope=" + scope + ",type=Latency,name=" + recorder.name), recorder);
+        } catch (JMException e) {
+            logger.severe("error registering the metrics in jmx: " + e);
+        }
+    }
+
+    private void register(ObjectName name, Object bean) throws JMException {
+        server.registerMBean(bean, name);
+        registered.add(name);
+    }
+
+    /**
+     * Logs a snapshot of the metrics periodically, on a daemon thread.
+     *
+     * @param logger - the logger to log the snapshots to.
+     * @param millis - the time between two snapshots.
+     */
+    public synchronized void startDump(Logger logger, long millis) {
+        if (dumpThread != null || millis <= 0)
+            return;
+        dumpThread = Thread.ofPlatform().daemon().name("metrics-dump").start(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(millis);
+                    logger.info(snapshot());
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+    }
+
+    /**
+     * Stops the periodic snapshots and unregisters the MXBeans.
+     */
+    public synchronized void close() {
+        if (dumpThread != null) {
+            dumpThread.interrupt();
+            dumpThread = null;
+        }
+        for (ObjectName name : registered)
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ignored) {
+            }
+        registered.clear();
+    }
+}
@@ -0,0 +1,14 @@
+package bguspl.set;
+
+/**
+ * This interface is the JMX view of the Metrics as a whole (the counters and recorders have views of their own).
+ */
+public interface MetricsMXBean {
+
+    /**
+     * @return - the share of the adjudicated claims that were not a legal set.
+     */
+    double getPenaltyRate();
+
+    String getSnapshot();
+}
@@ -0,0 +1,211 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class loads a network server (see NetworkServer) with many clients from a single thread: the first clients
+ * take the seats of the human players and press random slots, and the others watch. Every client keeps the cards of
+ * the table as it was told, so that the deltas it got can be checked against the table.
+ */
+public class NetworkLoadGenerator {
+
+    /**
+     * The results of a run.
+     */
+    public static class Stats {
+        public int connected;
+        public int joined;
+        public long messages;
+        public long bytes;
+        public long presses;
+        public long millis;
+
+        @Override
+        public String toString() {
+            return "clients: " + connected + " connected, " + joined + " seated; presses: " + presses
+                    + "; received: " + messages + " messages, " + bytes + " bytes"
+                    + (millis == 0 ? "" : ", " + messages * 1000 / millis + " messages/s");
+        }
+    }
+
+    private static final int NONE = -1;
+
+    private final InetSocketAddress address;
+    private final int seats;
+    private final Random random;
+    private final Connection[] connections;
+
+    /**
+     * @param address - the address of the server.
+     * @param clients - the number of clients.
+     * @param seats   - the number of clients taking a seat (the first human players).
+     * @param seed    - the seed of the random presses.
+     */
+    public NetworkLoadGenerator(InetSocketAddress address, int clients, int seats, long seed) {
+        this.address = address;
+        this.seats = seats;
+        random = new Random(seed);
+        connections = new Connection[clients];
+    }
+
+    /**
+     * Connects the clients and runs them.
+     *
+     * @param millis           - the number of milliseconds to run (including connecting).
+     * @param pressesPerSecond - the number of presses per second of each seated client (0 for none).
+     * @return - the results of the run.
+     * @throws IOException - if a client fails to connect.
+     */
+    public Stats run(long millis, double pressesPerSecond) throws IOException {
+        Stats stats = new Stats();
+        long start = System.currentTimeMillis();
+        long deadline = start + millis;
+        long pressMillis = pressesPerSecond > 0 ? (long) (1000 / pressesPerSecond) : Long.MAX_VALUE;
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < connections.length; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                connections[i] = new Connection(i, channel);
+                connections[i].key = channel.register(selector, SelectionKey.OP_CONNECT, connections[i]);
+                channel.connect(address);
+            }
+            for (long now = start; now < deadline; now = System.currentTimeMillis()) {
+                selector.select(Math.max(1, Math.min(deadline - now, 10)));
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isConnectable() && connection.channel.finishConnect()) {
+                        key.interestOps(SelectionKey.OP_READ);
+                        stats.connected++;
+                        if (connection.id < seats)
+                            connection.send(NetworkServer.JOIN, connection.id);
+                    }
+                    if (key.isValid() && key.isReadable())
+                        connection.read(stats);
+                    if (key.isValid() && key.isWritable())
+                        connection.flush();
+                }
+                selector.selectedKeys().clear();
+                now = System.currentTimeMillis();
+                for (Connection connection : connections)
+                    if (connection.player != NONE && connection.cards != null && connection.channel.isOpen()
+                            && now >= connection.nextPress) {
+                        connection.send(NetworkServer.PRESS, random.nextInt(connection.cards.length));
+                        connection.nextPress = now + pressMillis;
+                        stats.presses++;
+                    }
+            }
+        } finally {
+            for (Connection connection : connections)
+                if (connection != null)
+                    connection.channel.close();
+        }
+        for (Connection connection : connections)
+            if (connection.player != NONE)
+                stats.joined++;
+        stats.millis = System.currentTimeMillis() - start;
+        return stats;
+    }
+
+    /**
+     * @return - the cards of the table, by slot, as the client was told (-1 for no card), or null if it was not told.
+     */
+    public int[] cards(int client) {
+        int[] cards = connections[client].cards;
+        return cards == null ? null : cards.clone();
+    }
+
+    /**
+     * A client.
+     */
+    private static class Connection {
+
+        final int id;
+        final SocketChannel channel;
+        SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocate(1 << 16);
+        final ByteBuffer out = ByteBuffer.allocate(1 << 10);
+        int player = NONE;
+        int[] cards;
+        long nextPress;
+
+        Connection(int id, SocketChannel channel) {
+            this.id = id;
+            this.channel = channel;
+        }
+
+        void send(byte op, int value) throws IOException {
+            if (out.remaining() < NetworkServer.CLIENT_MESSAGE_LENGTH)
+                return; // the server is not reading, drop the message
+            out.put(op).putShort((short) value);
+            flush();
+        }
+
+        void flush() throws IOException {
+            out.flip();
+            channel.write(out);
+            out.compact();
+            key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        void read(Stats stats) throws IOException {
+            int read = channel.read(in);
+            if (read < 0) {
+                channel.close(); // disconnected by the server
+                return;
+            }
+            stats.bytes += read;
+            in.flip();
+            for (int length; (length = NetworkServer.messageLength(in)) > 0; in.position(in.position() + length)) {
+                stats.messages++;
+                handle(in.duplicate());
+            }
+            in.compact();
+        }
+
+        private void handle(ByteBuffer message) {
+            switch (message.get()) {
+                case NetworkServer.HELLO:
+                    message.getShort(); // players
+                    cards = new int[message.getShort() * message.getShort()];
+                    Arrays.fill(cards, NONE);
+                    break;
+                case NetworkServer.CARD:
+                    int slot = message.getShort();
+                    cards[slot] = message.getInt();
+                    break;
+                case NetworkServer.JOINED:
+                    player = message.getShort();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Runs a load on a server and prints the results.
+     *
+     * @param args - the host, the port, the number of clients, the number of seated clients, the number of seconds
+     *             and the number of presses per second of each seated client.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage: NetworkLoadGenerator host port [clients [seats [seconds [presses/s]]]]");
+            return;
+        }
+        NetworkLoadGenerator generator = new NetworkLoadGenerator(
+                new InetSocketAddress(args[0], Integer.parseInt(args[1])),
+                args.length > 2 ? Integer.parseInt(args[2]) : 100, args.length > 3 ? Integer.parseInt(args[3]) : 0,
+                System.nanoTime());
+        Stats stats = generator.run(args.length > 4 ? (long) (Double.parseDouble(args[4]) * 1000) : 10_000,
+                args.length > 5 ? Double.parseDouble(args[5]) : 2);
+        System.out.println(stats);
+    }
+}
@@ -0,0 +1,744 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This class lets remote clients play a table over tcp, with a compact binary protocol (all numbers big endian).
+ * It is a user interface: the changes of the game are pushed to all the clients as deltas, and to the next user
+ * interface (if any). A new client first gets a HELLO and the current state of the table as deltas.
+ *
+ * Client messages are 3 bytes long - an op code and a short value:
+ * JOIN (player id) - take the seat of a human player, answered by JOINED (player id, or -1 if refused).
+ * PRESS (slot) - press the key of a slot, as the seated player (see Player.keyPressed).
+ *
+ * Server messages are an op code followed by their fields (see messageLength):
+ * HELLO (short players, short rows, short columns, short featureCount, short featureSize),
+ * CARD (short slot, int card or -1 for none), TOKEN (short player, short slot, byte 1 placed or 0 removed),
+ * CLEAR_TOKENS (short slot or -1 for all), COUNTDOWN (int millis, byte warn), ELAPSED (int millis),
+ * FREEZE (short player, int millis), SCORE (short player, int score), WINNERS (short count, short ids...)
+ * and JOINED (short player).
+ *
+ * The clients are multiplexed over config.networkSelectorThreads selector threads. A client that does not read fast
+ * enough to keep its pending messages within config.networkClientBufferBytes is disconnected.
+ */
+public class NetworkServer implements UserInterface {
+
+    public static final byte JOIN = 1;
+    public static final byte PRESS = 2;
+    public static final int CLIENT_MESSAGE_LENGTH = 3;
+
+    public static final byte HELLO = 0;
+    public static final byte CARD = 1;
+    public static final byte TOKEN = 2;
+    public static final byte CLEAR_TOKENS = 3;
+    public static final byte COUNTDOWN = 4;
+    public static final byte ELAPSED = 5;
+    public static final byte FREEZE = 6;
+    public static final byte SCORE = 7;
+    public static final byte WINNERS = 8;
+    public static final byte JOINED = 9;
+
+    final int NONE = -1;
+
+    /**
+     * The number of connections waiting to be accepted (the default of 50 is too few when many clients connect at once).
+     */
+    private static final int BACKLOG = 1024;
+
+    private final Logger logger;
+    private final Config config;
+    private final Player[] players;
+    private final UserInterface ui;
+
+    /**
+     * Guards the state of the table below, the clients list and the order of the messages sent to the clients.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final int[] cards;
+    private final boolean[][] tokens;
+    private final int[] scores;
+    private final long[] freezes;
+    private long countdown;
+    private boolean warn;
+    private long elapsed = NONE;
+    private int[] winners;
+
+    /**
+     * The message being sent (filled and broadcast under the lock).
+     */
+    private final ByteBuffer message;
+
+    private final List<Client> clients = new ArrayList<>();
+
+    /**
+     * The client seated as each player (null for free seats).
+     */
+    private final Client[] seats;
+
+    private ServerSocketChannel serverChannel;
+    private SelectorLoop[] loops;
+    private int nextLoop;
+    private volatile boolean running;
+
+    /**
+     * @param logger  - the logger.
+     * @param config  - the configuration (the table, the players and the network settings).
+     * @param players - the players, pressed by their seated clients (may be filled after the server is created).
+     * @param ui      - the next user interface, which all the calls are passed on to (may be null).
+     */
+    public NetworkServer(Logger logger, Config config, Player[] players, UserInterface ui) {
+        this.logger = logger;
+        this.config = config;
+        this.players = players;
+        this.ui = ui;
+        cards = new int[config.tableSize];
+        Arrays.fill(cards, NONE);
+        tokens = new boolean[config.players][config.tableSize];
+        scores = new int[config.players];
+        freezes = new long[config.players];
+        seats = new Client[config.players];
+        message = ByteBuffer.allocate(Math.max(11, 3 + 2 * config.players));
+    }
+
+    /**
+     * Starts accepting clients on config.networkPort (any free port if 0, see port()).
+     *
+     * @throws IOException - if the port cannot be bound.
+     */
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(config.networkPort), BACKLOG);
+        serverChannel.configureBlocking(false);
+        running = true;
+        loops = new SelectorLoop[Math.max(1, config.networkSelectorThreads)];
+        for (int i = 0; i < loops.length; i++)
+            loops[i] = new SelectorLoop(i);
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        for (SelectorLoop loop : loops)
+            loop.thread.start();
+        logger.info("network server listening on port " + port() + ".");
+    }
+
+    /**
+     * @return - the port the server listens on.
+     */
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return - the number of clients connected.
+     */
+    public int clients() {
+        lock.lock();
+        try {
+            return clients.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops the server and disconnects all the clients.
+     */
+    public void close() {
+        if (!running)
+            return;
+        running = false;
+        for (SelectorLoop loop : loops)
+            loop.selector.wakeup();
+        for (SelectorLoop loop : loops)
+            try {
+                loop.thread.join();
+            } catch (InterruptedException ignored) {
+            }
+        try {
+            serverChannel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        lock.lock();
+        try {
+            cards[slot] = card;
+            broadcast(card(slot, card));
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.placeCard(card, slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        lock.lock();
+        try {
+            cards[slot] = NONE;
+            broadcast(card(slot, NONE));
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.removeCard(slot);
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        lock.lock();
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                this.cards[slots[i]] = cards[i];
+                broadcast(card(slots[i], cards[i]));
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.placeCards(cards, slots);
+    }
+
+    @Override
+    public void removeCards(int[] slots) {
+        lock.lock();
+        try {
+            for (int slot : slots) {
+                cards[slot] = NONE;
+                broadcast(card(slot, NONE));
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.removeCards(slots);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        lock.lock();
+        try {
+            tokens[player][slot] = true;
+            broadcast(token(player, slot, true));
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        lock.lock();
+        try {
+            for (boolean[] playerTokens : tokens)
+                Arrays.fill(playerTokens, false);
+            broadcast(clearTokens(NONE));
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        lock.lock();
+        try {
+            for (boolean[] playerTokens : tokens)
+                playerTokens[slot] = false;
+            broadcast(clearTokens(slot));
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        lock.lock();
+        try {
+            tokens[player][slot] = false;
+            broadcast(token(player, slot, false));
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        lock.lock();
+        try {
+            countdown = millies;
+            this.warn = warn;
+            elapsed = NONE;
+            broadcast(countdown(millies, warn));
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        lock.lock();
+        try {
+            elapsed = millies;
+            broadcast(elapsed(millies));
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        lock.lock();
+        try {
+            freezes[player] = millies;
+            broadcast(freeze(player, millies));
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        lock.lock();
+        try {
+            scores[player] = score;
+            broadcast(score(player, score));
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        lock.lock();
+        try {
+            winners = players.clone();
+            broadcast(winners(winners));
+        } finally {
+            lock.unlock();
+        }
+        if (ui != null) ui.announceWinner(players);
+    }
+
+    @Override
+    public void dispose() {
+        close();
+        if (ui != null) ui.dispose();
+    }
+
+    /**
+     * @return - the length of the server message at the buffer's position, or 0 if it is not all there yet.
+     * @throws IllegalArgumentException - if the op code is unknown.
+     */
+    public static int messageLength(ByteBuffer buffer) {
+        if (!buffer.hasRemaining())
+            return 0;
+        int position = buffer.position();
+        int length;
+        switch (buffer.get(position)) {
+            case HELLO:
+                length = 11;
+                break;
+            case CARD:
+            case FREEZE:
+            case SCORE:
+                length = 7;
+                break;
+            case TOKEN:
+            case COUNTDOWN:
+                length = 6;
+                break;
+            case CLEAR_TOKENS:
+            case JOINED:
+                length = 3;
+                break;
+            case ELAPSED:
+                length = 5;
+                break;
+            case WINNERS:
+                if (buffer.remaining() < 3)
+                    return 0;
+                length = 3 + 2 * buffer.getShort(position + 1);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown op code " + buffer.get(position));
+        }
+        return buffer.remaining() < length ? 0 : length;
+    }
+
+    private ByteBuffer card(int slot, int card) {
+        return message.clear().put(CARD).putShort((short) slot).putInt(card).flip();
+    }
+
+    private ByteBuffer token(int player, int slot, boolean placed) {
+        return message.clear().put(TOKEN).putShort((short) player).putShort((short) slot)
+                .put((byte) (placed ? 1 : 0)).flip();
+    }
+
+    private ByteBuffer clearTokens(int slot) {
+        return message.clear().put(CLEAR_TOKENS).putShort((short) slot).flip();
+    }
+
+    private ByteBuffer countdown(long millis, boolean warn) {
+        return message.clear().put(COUNTDOWN).putInt((int) millis).put((byte) (warn ? 1 : 0)).flip();
+    }
+
+    private ByteBuffer elapsed(long millis) {
+        return message.clear().put(ELAPSED).putInt((int) millis).flip();
+    }
+
+    private ByteBuffer freeze(int player, long millis) {
+        return message.clear().put(FREEZE).putShort((short) player).putInt((int) millis).flip();
+    }
+
+    private ByteBuffer score(int player, int score) {
+        return message.clear().put(SCORE).putShort((short) player).putInt(score).flip();
+    }
+
+    private ByteBuffer winners(int[] players) {
+        message.clear().put(WINNERS).putShort((short) players.length);
+        for (int player : players)
+            message.putShort((short) player);
+        return message.flip();
+    }
+
+    private ByteBuffer joined(int player) {
+        return message.clear().put(JOINED).putShort((short) player).flip();
+    }
+
+    /**
+     * Sends a message to all the clients.
+     *
+     * @pre - the lock is held.
+     */
+    private void broadcast(ByteBuffer message) {
+        for (Client client : clients)
+            client.send(message);
+    }
+
+    /**
+     * Sends a new client the HELLO and the state of the table, and adds it to the clients.
+     *
+     * @pre - the lock is held.
+     */
+    private void welcome(Client client) {
+        client.send(message.clear().put(HELLO).putShort((short) config.players).putShort((short) config.rows)
+                .putShort((short) config.columns).putShort((short) config.featureCount)
+                .putShort((short) config.featureSize).flip());
+        for (int slot = 0; slot < cards.length; slot++)
+            if (cards[slot] != NONE)
+                client.send(card(slot, cards[slot]));
+        for (int player = 0; player < tokens.length; player++) {
+            for (int slot = 0; slot < cards.length; slot++)
+                if (tokens[player][slot])
+                    client.send(token(player, slot, true));
+            if (scores[player] != 0)
+                client.send(score(player, scores[player]));
+            if (freezes[player] != 0)
+                client.send(freeze(player, freezes[player]));
+        }
+        client.send(elapsed == NONE ? countdown(countdown, warn) : elapsed(elapsed));
+        if (winners != null)
+            client.send(winners(winners));
+        clients.add(client);
+    }
+
+    /**
+     * The largest state of the table a new client may be sent (see welcome).
+     */
+    private int welcomeBytes() {
+        return 11 + 7 * config.tableSize + config.players * (6 * config.tableSize + 14) + 6 + 3 + 2 * config.players;
+    }
+
+    /**
+     * A connected client.
+     */
+    private class Client {
+
+        final SocketChannel channel;
+        final SelectorLoop loop;
+        SelectionKey key;
+
+        /**
+         * The player the client is seated as (NONE for a spectator).
+         */
+        int player = NONE;
+
+        final ByteBuffer in = ByteBuffer.allocate(64 * CLIENT_MESSAGE_LENGTH);
+
+        /**
+         * The messages waiting to be written to the channel (in write mode), guarded by outLock.
+         */
+        final ByteBuffer out;
+        final ReentrantLock outLock = new ReentrantLock();
+
+        /**
+         * True iff the client fell behind and is to be disconnected (guarded by outLock).
+         */
+        boolean overflow;
+
+        Client(SocketChannel channel, SelectorLoop loop) {
+            this.channel = channel;
+            this.loop = loop;
+            out = ByteBuffer.allocate(Math.max(config.networkClientBufferBytes, 2 * welcomeBytes()));
+        }
+
+        /**
+         * Queues a message to the client, and has its selector thread write it if nothing else was waiting.
+         */
+        void send(ByteBuffer message) {
+            boolean first;
+            outLock.lock();
+            try {
+                if (overflow)
+                    return;
+                first = out.position() == 0;
+                if (out.remaining() < message.remaining()) {
+                    overflow = true;
+                    first = true; // to be disconnected even if it does not become writable
+                } else
+                    out.put(message.duplicate());
+            } finally {
+                outLock.unlock();
+            }
+            if (first)
+                loop.flush(this);
+        }
+
+        /**
+         * Writes the waiting messages (on the selector thread), as many as the channel takes now.
+         *
+         * @return - false iff the client is to be disconnected.
+         */
+        boolean write() throws IOException {
+            outLock.lock();
+            try {
+                if (overflow)
+                    return false;
+                out.flip();
+                channel.write(out);
+                out.compact();
+                key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                        : SelectionKey.OP_READ);
+                return true;
+            } finally {
+                outLock.unlock();
+            }
+        }
+
+        /**
+         * Reads and handles the messages of the client (on the selector thread).
+         *
+         * @return - false iff the client is to be disconnected.
+         */
+        boolean read() throws IOException {
+            if (channel.read(in) < 0)
+                return false;
+            in.flip();
+            try {
+                while (in.remaining() >= CLIENT_MESSAGE_LENGTH)
+                    if (!handle(in.get(), in.getShort()))
+                        return false;
+            } finally {
+                in.compact();
+            }
+            return true;
+        }
+
+        private boolean handle(byte op, int value) {
+            switch (op) {
+                case JOIN:
+                    lock.lock();
+                    try {
+                        boolean seated = player == NONE && value >= 0 && value < config.humanPlayers
+                                && seats[value] == null;
+                        if (seated) {
+                            seats[value] = this;
+                            player = value;
+                        }
+                        send(joined(seated ? value : NONE));
+                    } finally {
+                        lock.unlock();
+                    }
+                    return true;
+                case PRESS:
+                    if (player != NONE && value >= 0 && value < config.tableSize && players[player] != null)
+                        players[player].keyPressed(value);
+                    return true;
+                default:
+                    logger.warning("network client " + address() + " sent unknown op code " + op);
+                    return false;
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                clients.remove(this);
+                if (player != NONE)
+                    seats[player] = null;
+            } finally {
+                lock.unlock();
+            }
+            if (key != null)
+                key.cancel();
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        String address() {
+            try {
+                return String.valueOf(channel.getRemoteAddress());
+            } catch (IOException e) {
+                return "?";
+            }
+        }
+    }
+
+    /**
+     * A selector thread: reads from and writes to its clients (loop 0 also accepts the new clients).
+     */
+    private class SelectorLoop implements Runnable {
+
+        final Selector selector;
+        final Thread thread;
+
+        /**
+         * New channels for the loop to register, and clients with messages to write.
+         */
+        final Queue<SocketChannel> accepted = new ConcurrentLinkedQueue<>();
+        final Queue<Client> flushes = new ConcurrentLinkedQueue<>();
+
+        /**
+         * True iff the selector was woken up and did not handle the queues yet (so that it is woken up once for many
+         * messages).
+         */
+        final AtomicBoolean woken = new AtomicBoolean();
+
+        SelectorLoop(int id) throws IOException {
+            selector = Selector.open();
+            thread = Thread.ofPlatform().daemon().name("network-" + id).unstarted(this);
+        }
+
+        void flush(Client client) {
+            flushes.add(client);
+            wakeup();
+        }
+
+        void register(SocketChannel channel) {
+            accepted.add(channel);
+            wakeup();
+        }
+
+        private void wakeup() {
+            if (woken.compareAndSet(false, true))
+                selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            logger.info("thread " + Thread.currentThread().getName() + " starting.");
+            try {
+                while (running) {
+                    selector.select();
+                    woken.set(false);
+                    for (SocketChannel channel; (channel = accepted.poll()) != null; )
+                        connect(channel);
+                    for (Client client; (client = flushes.poll()) != null; )
+                        if (client.key.isValid())
+                            handle(client, SelectionKey.OP_WRITE);
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        if (!key.isValid())
+                            continue;
+                        if (key.isAcceptable())
+                            accept();
+                        else
+                            handle((Client) key.attachment(), key.readyOps());
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                logger.severe("network selector failed: " + e);
+            } finally {
+                for (SelectionKey key : selector.keys())
+                    if (key.attachment() instanceof Client)
+                        ((Client) key.attachment()).close();
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            }
+            logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+        }
+
+        private void accept() throws IOException {
+            for (SocketChannel channel; (channel = serverChannel.accept()) != null; ) {
+                SelectorLoop loop = loops[nextLoop];
+                nextLoop = (nextLoop + 1) % loops.length;
+                if (loop == this)
+                    connect(channel);
+                else
+                    loop.register(channel);
+            }
+        }
+
+        private void connect(SocketChannel channel) {
+            Client client = new Client(channel, this);
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                client.key = channel.register(selector, SelectionKey.OP_READ, client);
+            } catch (IOException e) {
+                logger.warning("network client " + client.address() + " failed to connect: " + e);
+                client.close();
+                return;
+            }
+            lock.lock();
+            try {
+                welcome(client);
+            } finally {
+                lock.unlock();
+            }
+            if (logger.isLoggable(Level.INFO))
+                logger.info("network client " + client.address() + " connected.");
+        }
+
+        private void handle(Client client, int ops) {
+            boolean open;
+            try {
+                open = ((ops & SelectionKey.OP_READ) == 0 || client.read())
+                        && ((ops & SelectionKey.OP_WRITE) == 0 || client.write());
+            } catch (IOException e) {
+                open = false;
+            }
+            if (!open) {
+                if (logger.isLoggable(Level.INFO))
+                    logger.info("network client " + client.address() + " disconnected.");
+                client.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * This class replays a game from its journal (see Journal): it re-drives a user interface with the events of the game,
+ * in the order and at the pace they happened (or faster, or slower).
+ *
+ * Only the events the user interface shows are replayed: cards, tokens, scores, freezes and the winners. Claims,
+ * verdicts and reshuffles are in the journal for post-mortems, and are skipped.
+ */
+public class Replay {
+
+    /**
+     * The number of records read from the file at a time.
+     */
+    private static final int READ_RECORDS = 4096;
+
+    private final FileChannel channel;
+
+    /**
+     * The game, as described by the header of the journal.
+     */
+    public final long startTime;
+    public final int players;
+    public final int tableSize;
+    public final int featureSize;
+    public final int featureCount;
+
+    /**
+     * Opens a journal and reads its header.
+     *
+     * @param path - the path of the journal file.
+     * @throws IOException - if the file could not be read, or is not a journal.
+     */
+    public Replay(Path path) throws IOException {
+        channel = FileChannel.open(path);
+        ByteBuffer header = ByteBuffer.allocate(Journal.HEADER_SIZE);
+        readFully(header);
+        header.flip();
+        if (header.remaining() < Journal.HEADER_SIZE || header.getInt() != Journal.MAGIC) {
+            channel.close();
+            throw new IOException(path + " is not a game journal");
+        }
+        short version = header.getShort();
+        short recordSize = header.getShort();
+        if (version != Journal.VERSION || recordSize != Journal.RECORD_SIZE) {
+            channel.close();
+            throw new IOException(path + ": unsupported journal version " + version);
+        }
+        startTime = header.getLong();
+        players = header.getInt();
+        tableSize = header.getInt();
+        featureSize = header.getInt();
+        featureCount = header.getInt();
+    }
+
+    /**
+     * Replays the game to its end, and closes the journal.
+     *
+     * @param ui    - the user interface to drive.
+     * @param speed - how many times faster than the original game to replay (0 or less for no waiting at all).
+     * @param clock - the clock to wait on between events.
+     * @return - the number of events replayed.
+     * @throws IOException          - if the journal could not be read.
+     * @throws InterruptedException - if interrupted while waiting for the next event.
+     */
+    public long run(UserInterface ui, double speed, Clock clock) throws IOException, InterruptedException {
+        ByteBuffer records = ByteBuffer.allocateDirect(READ_RECORDS * Journal.RECORD_SIZE);
+        Journal.Event[] events = Journal.Event.values();
+        int[] winners = new int[players];
+        int winnerCount = 0;
+        long replayed = 0;
+        long replayStart = clock.currentTimeMillis();
+        try {
+            while (readFully(records)) {
+                records.flip();
+                while (records.remaining() >= Journal.RECORD_SIZE) {
+                    int time = records.getInt();
+                    int event = records.getShort();
+                    int player = records.getShort();
+                    int slot = records.getInt();
+                    int value = records.getInt();
+                    if (event < 0 || event >= events.length)
+                        continue; // an event of a newer version
+                    if (speed > 0)
+                        clock.sleep(replayStart + (long) (time / speed) - clock.currentTimeMillis());
+                    switch (events[event]) {
+                        case CARD_PLACED:
+                            ui.placeCard(value, slot);
+                            break;
+                        case CARD_REMOVED:
+                            ui.removeCard(slot);
+                            break;
+                        case TOKEN_PLACED:
+                            ui.placeToken(player, slot);
+                            break;
+                        case TOKEN_REMOVED:
+                            ui.removeToken(player, slot);
+                            break;
+                        case TOKENS_REMOVED:
+                            ui.removeTokens(slot);
+                            break;
+                        case SCORE:
+                            ui.setScore(player, value);
+                            break;
+                        case FREEZE:
+                            ui.setFreeze(player, value);
+                            break;
+                        case WINNER:
+                            if (winnerCount < winners.length)
+                                winners[winnerCount++] = player;
+                            break;
+                        default:
+                            break;
+                    }
+                    replayed++;
+                }
+                records.compact(); // keeps the beginning of a record cut by the end of the read
+            }
+        } finally {
+            channel.close();
+        }
+        if (winnerCount > 0)
+            ui.announceWinner(Arrays.copyOf(winners, winnerCount));
+        return replayed;
+    }
+
+    /**
+     * Reads until the buffer is full or the file ends.
+     *
+     * @return - true iff anything was read.
+     */
+    private boolean readFully(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) ;
+        return buffer.position() > start;
+    }
+
+    /**
+     * Replays a journal on the screen (a journal cut short, e.g. by a crash, is replayed up to where it ends).
+     *
+     * @param args - the path of the journal file and the replay speed (1 if not given; 0 for no waiting).
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+
+        if (args.length < 1) {
+            System.out.println("usage: Replay <journal file> [speed]");
+            return;
+        }
+        Logger logger = Logger.getLogger("SetGameReplayLogger");
+        logger.setUseParentHandlers(false);
+        Config config = new Config(logger, "config.properties");
+        Replay replay = new Replay(Paths.get(args[0]));
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        if (replay.players != config.players || replay.tableSize != config.tableSize) {
+            System.out.println("the journal is of a game of " + replay.players + " players on " + replay.tableSize
+                    + " slots, but config.properties has " + config.players + " players on " + config.tableSize);
+            return;
+        }
+
+        UserInterface ui = new UserInterfaceSwing(logger, config, new Player[config.players]);
+        long events = replay.run(ui, speed, Clock.SYSTEM);
+        System.out.println(events + " events replayed.");
+        if (config.endGamePauseMillies > 0)
+            Thread.sleep(config.endGamePauseMillies);
+        ui.dispose();
+    }
+}
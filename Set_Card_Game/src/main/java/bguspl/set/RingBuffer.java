@@ -0,0 +1,99 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class is a bounded, lock-free queue of elements, published by many threads and taken by a single one.
+ * A cell holds a sequence number that tells whose turn it is: position p is free for a producer when the sequence of
+ * its cell is p, and holds a published element when it is p + 1 (as in bguspl.set.ex.ClaimQueue).
+ *
+ * @param <E> - the type of the elements.
+ */
+public class RingBuffer<E> {
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<E> elements;
+
+    /**
+     * The next position to be reserved by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The next position to be taken by the consumer (only written by the consumer thread).
+     */
+    private volatile long head;
+
+    /**
+     * @param capacity - the minimal number of elements the queue can hold (rounded up to a power of 2).
+     */
+    public RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+        elements = new AtomicReferenceArray<>(size);
+    }
+
+    /**
+     * Publishes an element (may be called from any thread).
+     *
+     * @param element - the element to publish.
+     * @return - true iff the element was published, false if the queue is full.
+     */
+    public boolean offer(E element) {
+        long position;
+        while (true) {
+            position = tail.get();
+            long difference = sequences.get((int) position & mask) - position;
+            if (difference < 0)
+                return false;
+            if (difference == 0 && tail.compareAndSet(position, position + 1))
+                break;
+        }
+        int cell = (int) position & mask;
+        elements.lazySet(cell, element);
+        sequences.lazySet(cell, position + 1);
+        return true;
+    }
+
+    /**
+     * Takes as many published elements as fit in the batch (must only be called from the consumer thread).
+     *
+     * @param batch - the array to move the elements into, in the order they were published.
+     * @return - the number of elements taken.
+     */
+    public int drainTo(E[] batch) {
+        long position = head;
+        int count = 0;
+        while (count < batch.length) {
+            int cell = (int) position & mask;
+            if (sequences.get(cell) != position + 1)
+                break;
+            batch[count++] = elements.get(cell);
+            elements.lazySet(cell, null);
+            sequences.lazySet(cell, position + mask + 1);
+            position++;
+        }
+        head = position;
+        return count;
+    }
+
+    /**
+     * @return - the number of positions reserved by producers so far (published or about to be).
+     */
+    public long produced() {
+        return tail.get();
+    }
+
+    /**
+     * @return - the number of elements taken by the consumer so far.
+     */
+    public long consumed() {
+        return head;
+    }
+}
@@ -2,23 +2,36 @@ package bguspl.set;
 
 import java.util.logging.Logger;
 
-public class ThreadLogger extends Thread {
+public class ThreadLogger {
 
     final Logger logger;
 
+    /**
+     * The thread being logged (a platform or a virtual one; virtual threads cannot be subclassed).
+     */
+    private final Thread thread;
+
     public ThreadLogger(Runnable target, String name, Logger logger) {
-        super(target, name);
+        this(new Thread(target, name), logger);
+    }
+
+    public ThreadLogger(Thread thread, Logger logger) {
+        this.thread = thread;
         this.logger = logger;
     }
 
+    public String getName() {
+        return thread.getName();
+    }
+
     public void startWithLog() {
         logStart(logger, getName());
-        super.start();
+        thread.start();
     }
 
     public void joinWithLog() throws InterruptedException {
         try {
-            join();
+            thread.join();
         } finally {
             logStop(logger, getName());
         }
@@ -0,0 +1,184 @@
+package bguspl.set;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class runs short tasks after a delay, for any number of tasks on a single thread: a hashed timer wheel.
+ * The time is cut into ticks, and a task waits in the bucket of the tick it is due at (modulo the number of buckets,
+ * counting the rounds of the wheel left for the tasks that are due later than a round). Scheduling and cancelling a
+ * task is O(1), and every tick the thread only looks at the tasks of one bucket. A task runs at most a tick late (and
+ * tasks due in the same tick run in no particular order).
+ *
+ * The thread parks while there are no tasks, and the tasks run on it, so they must not block.
+ */
+public class TimerWheel {
+
+    /**
+     * A task waiting in the wheel.
+     */
+    public static class Timeout implements Clock.Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+        private long rounds;
+        private Timeout next;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private static class Shared {
+        static final TimerWheel WHEEL = start(10, 512, "timer-wheel");
+    }
+
+    /**
+     * @return - the wheel shared by all the games of the process (10 ms ticks).
+     */
+    public static TimerWheel shared() {
+        return Shared.WHEEL;
+    }
+
+    private final long tickNanos;
+    private final long startTime;
+
+    /**
+     * The buckets of the wheel (linked lists of timeouts), only touched by the wheel's thread.
+     */
+    private final Timeout[] buckets;
+    private final int mask;
+
+    /**
+     * The tasks scheduled and not yet put in their buckets.
+     */
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The next tick to expire, and the number of tasks in the buckets.
+     */
+    private long tick;
+    private int size;
+
+    /**
+     * The wheel's thread (set once by start, before the wheel is handed out).
+     */
+    private Thread thread;
+
+    /**
+     * True iff the thread is parked until a task is scheduled.
+     */
+    private volatile boolean idle;
+
+    private TimerWheel(long tickMillis, int buckets) {
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.buckets = new Timeout[Integer.highestOneBit(Math.max(1, buckets - 1)) << 1];
+        mask = this.buckets.length - 1;
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * Creates a wheel and starts its thread.
+     *
+     * @param tickMillis - the length of a tick.
+     * @param buckets    - the number of buckets (rounded up to a power of 2).
+     * @param name       - the name of the wheel's thread.
+     * @return - the wheel.
+     */
+    public static TimerWheel start(long tickMillis, int buckets, String name) {
+        TimerWheel wheel = new TimerWheel(tickMillis, buckets);
+        wheel.thread = Thread.ofPlatform().daemon().name(name).start(wheel::run);
+        return wheel;
+    }
+
+    /**
+     * Schedules a task to run after a delay.
+     *
+     * @param task        - the task to run (on the wheel's thread).
+     * @param delayMillis - the delay.
+     * @return - the timeout of the task, for cancelling it.
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        Timeout timeout = new Timeout(task, System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(delayMillis));
+        scheduled.add(timeout);
+        if (idle)
+            LockSupport.unpark(thread);
+        return timeout;
+    }
+
+    private void run() {
+        while (true) {
+            long now = System.nanoTime() - startTime;
+            if (size == 0 && scheduled.isEmpty()) {
+                idle = true;
+                if (scheduled.isEmpty())
+                    LockSupport.park(this);
+                idle = false;
+                tick = Math.max(tick, (System.nanoTime() - startTime) / tickNanos); // nothing was due meanwhile
+                continue;
+            }
+            // a tick is expired once it is over, so a task never runs early
+            for (; (tick + 1) * tickNanos <= now; tick++) {
+                transferScheduled();
+                expire(tick);
+            }
+            transferScheduled();
+            long sleep = (tick + 1) * tickNanos - (System.nanoTime() - startTime);
+            if (sleep > 0)
+                LockSupport.parkNanos(this, sleep);
+        }
+    }
+
+    /**
+     * Puts the tasks scheduled in their buckets.
+     */
+    private void transferScheduled() {
+        for (Timeout timeout; (timeout = scheduled.poll()) != null; ) {
+            if (timeout.cancelled)
+                continue;
+            long due = timeout.deadline / tickNanos;
+            timeout.rounds = Math.max(0, due - tick) / buckets.length;
+            int bucket = (int) (Math.max(due, tick) & mask); // a task already due waits for the current tick
+            timeout.next = buckets[bucket];
+            buckets[bucket] = timeout;
+            size++;
+        }
+    }
+
+    /**
+     * Runs the tasks of a tick, and counts down the rounds of the other tasks in its bucket.
+     */
+    private void expire(long tick) {
+        int bucket = (int) (tick & mask);
+        Timeout previous = null;
+        for (Timeout timeout = buckets[bucket]; timeout != null; timeout = timeout.next) {
+            boolean due = timeout.rounds == 0;
+            if (!due && !timeout.cancelled) {
+                timeout.rounds--;
+                previous = timeout;
+                continue;
+            }
+            if (previous == null)
+                buckets[bucket] = timeout.next;
+            else
+                previous.next = timeout.next;
+            size--;
+            if (!timeout.cancelled)
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    Thread current = Thread.currentThread(); // the wheel's thread
+                    current.getUncaughtExceptionHandler().uncaughtException(current, e); // and go on with the others
+                }
+        }
+    }
+}
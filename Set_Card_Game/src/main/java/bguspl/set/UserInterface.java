@@ -18,6 +18,25 @@ public interface UserInterface {
      */
     void removeCard(int slot);
 
+    /**
+     * Draw the card images corresponding to the card ids in the specified slots, all at once.
+     * @param cards - the card ids.
+     * @param slots - the slot numbers, cards[i] in slots[i].
+     */
+    default void placeCards(int[] cards, int[] slots) {
+        for (int i = 0; i < cards.length; i++)
+            placeCard(cards[i], slots[i]);
+    }
+
+    /**
+     * Draw an empty card image in the specified slots, all at once.
+     * @param slots - the slot numbers.
+     */
+    default void removeCards(int[] slots) {
+        for (int slot : slots)
+            removeCard(slot);
+    }
+
     /**
      * Draw a player name text in the specified slot.
      * @param player - the card id.
@@ -1,9 +1,8 @@
 package bguspl.set;
 
-import java.util.Arrays;
-import java.util.List;
+import java.util.StringJoiner;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 
 public class UserInterfaceDecorator implements UserInterface {
 
@@ -21,42 +20,56 @@ public class UserInterfaceDecorator implements UserInterface {
 
     @Override
     public void placeCard(int card, int slot) {
-        logger.severe("placing card " + card + " in slot " + slot);
+        log("placing card {0} in slot {1}", card, slot);
         util.spin();
         if (ui != null) ui.placeCard(card, slot);
     }
 
     @Override
     public void removeCard(int slot) {
-        logger.severe("removing card from slot " + slot);
+        log("removing card from slot {0}", slot);
         util.spin();
         if (ui != null) ui.removeCard(slot);
     }
 
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        log("placing cards {0} in slots {1}", cards, slots);
+        util.spin();
+        if (ui != null) ui.placeCards(cards, slots);
+    }
+
+    @Override
+    public void removeCards(int[] slots) {
+        log("removing cards from slots {0}", slots, 0);
+        util.spin();
+        if (ui != null) ui.removeCards(slots);
+    }
+
     @Override
     public void placeToken(int player, int slot) {
-        logger.severe("player " + (player + 1) + " placing token on slot " + slot);
+        log("player {0} placing token on slot {1}", player + 1, slot);
         util.spin();
         if (ui != null) ui.placeToken(player, slot);
     }
 
     @Override
     public void removeTokens() {
-        logger.severe("removing all tokens");
+        log("removing all tokens");
         util.spin();
         if (ui != null) ui.removeTokens();
     }
 
     @Override
     public void removeTokens(int slot) {
-        logger.severe("removing tokens from slot " + slot);
+        log("removing tokens from slot {0}", slot);
         util.spin();
         if (ui != null) ui.removeTokens(slot);
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        logger.severe("removing player " + (player + 1) + " token from slot " + slot);
+        log("removing player {0} token from slot {1}", player + 1, slot);
         util.spin();
         if (ui != null) ui.removeToken(player, slot);
     }
@@ -64,41 +77,87 @@ public class UserInterfaceDecorator implements UserInterface {
     @Override
     public void setCountdown(long millies, boolean warn) {
         if (!warn || millies % 1000L == 0L)
-            logger.severe("updating countdown to " + millies);
+            log("updating countdown to {0}", millies);
         if (ui != null) ui.setCountdown(millies, warn);
     }
 
     @Override
     public void setElapsed(long millies) {
-        logger.severe("updating elapsed time to " + millies);
+        log("updating elapsed time to {0}", millies);
         util.spin();
         if (ui != null) ui.setElapsed(millies);
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        logger.severe("setting player " + (player + 1) + " freeze to " + millies);
+        log("setting player {0} freeze to {1}", player + 1, millies);
         util.spin();
         if (ui != null) ui.setFreeze(player, millies);
     }
 
     @Override
     public void setScore(int player, int score) {
-        logger.severe("setting player " + (player + 1) + " score to " + score);
+        log("setting player {0} score to {1}", player + 1, score);
         util.spin();
         if (ui != null) ui.setScore(player, score);
     }
 
     @Override
     public void announceWinner(int[] players) {
-        List<String> winners = Arrays.stream(players).mapToObj(id -> "player " + (id + 1)).collect(Collectors.toList());
-        logger.severe("announcing winner(s): " + String.join(", ", winners));
+        log("announcing winner(s): players {0}", players, 1);
         if (ui != null) ui.announceWinner(players);
     }
 
     @Override
     public void dispose() {
-        logger.severe("disposing of user interface elements");
+        log("disposing of user interface elements");
         if (ui != null) ui.dispose();
     }
+
+    /**
+     * Logs a ui call. The level is checked before anything is built, and the message is only put together with its
+     * parameters when the record is written (see LogFormatter).
+     */
+    private void log(String message) {
+        if (logger.isLoggable(Level.SEVERE))
+            logger.log(Level.SEVERE, message);
+    }
+
+    private void log(String message, long parameter) {
+        if (logger.isLoggable(Level.SEVERE))
+            logger.log(Level.SEVERE, message, parameter);
+    }
+
+    private void log(String message, int parameter0, long parameter1) {
+        if (logger.isLoggable(Level.SEVERE))
+            logger.log(Level.SEVERE, message, new Object[]{parameter0, parameter1});
+    }
+
+    /**
+     * @param offset - added to the values shown (e.g. 1 for player ids, which are shown from 1).
+     */
+    private void log(String message, int[] parameter, int offset) {
+        if (logger.isLoggable(Level.SEVERE))
+            logger.log(Level.SEVERE, message, new Values(parameter.clone(), offset));
+    }
+
+    private void log(String message, int[] parameter0, int[] parameter1) {
+        if (logger.isLoggable(Level.SEVERE))
+            logger.log(Level.SEVERE, message, new Object[]{new Values(parameter0.clone(), 0),
+                    new Values(parameter1.clone(), 0)});
+    }
+
+    /**
+     * The values of an array parameter (copied, as the record may be written after the array changed), only put
+     * together when the record is written.
+     */
+    private record Values(int[] values, int offset) {
+        @Override
+        public String toString() {
+            StringJoiner joiner = new StringJoiner(", ", "[", "]");
+            for (int value : values)
+                joiner.add(Integer.toString(value + offset));
+            return joiner.toString();
+        }
+    }
 }
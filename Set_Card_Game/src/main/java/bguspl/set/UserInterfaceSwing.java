@@ -4,10 +4,12 @@ import bguspl.set.ex.Player;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.FileNotFoundException;
-import java.net.URL;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -15,22 +17,80 @@ import static java.lang.String.format;
 
 /**
  * Java Swing implementation of the UserInterface interface.
+ *
+ * The game threads never touch Swing: a UserInterface call only updates the state to display (lock-free) and marks
+ * the slot, player or timer it changed as dirty. A frame timer on the event dispatch thread takes the dirty marks once
+ * per frame and shows the latest state of what changed, repainting only the dirty cells. Many changes between two
+ * frames (e.g. countdown updates every 10 millis, or a token placed and removed) cost a single update.
  */
 public class UserInterfaceSwing extends JFrame implements UserInterface {
 
+    final int EMPTY = -1;
+
+    /**
+     * The time between two frames (about 60 frames per second).
+     */
+    private static final int FRAME_MILLIS = 16;
+
+    /**
+     * The kinds of timer display (the low bits of timer, the millis to show being the rest).
+     */
+    private static final int COUNTDOWN = 0;
+    private static final int COUNTDOWN_WARN = 1;
+    private static final int ELAPSED = 2;
+    private static final int TIMER_KIND_BITS = 2;
+
     private final TimerPanel timerPanel;
     private final GamePanel gamePanel;
     private final PlayersPanel playersPanel;
     private final WinnerPanel winnerPanel;
     private final Config config;
 
+    /**
+     * The state to display, written by the game threads.
+     * cards: the card in each slot (EMPTY if none).
+     * tokens: the players with a token on each slot as a bit mask: bit p of word slot * playerWords + p / 64.
+     * freezes and scores: per player.
+     * timer: the millis to show and the kind of display (see COUNTDOWN), -1 if not set yet.
+     */
+    private final AtomicIntegerArray cards;
+    private final AtomicLongArray tokens;
+    private final int playerWords;
+    private final AtomicLongArray freezes;
+    private final AtomicIntegerArray scores;
+    private final AtomicLong timer = new AtomicLong(-1);
+    private volatile int[] winners;
+
+    /**
+     * What changed since the last frame: bit masks of the dirty slots and players, and whether the timer is dirty.
+     */
+    private final AtomicLongArray dirtySlots;
+    private final AtomicLongArray dirtyPlayers;
+    private final AtomicBoolean dirtyTimer = new AtomicBoolean();
+
+    private final Timer frameTimer;
+
     static String intInBaseToPaddedString(int n, int padding, int base) {
         return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
     }
 
+    private static int wordsFor(int bits) {
+        return (bits + Long.SIZE - 1) / Long.SIZE;
+    }
+
     public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
 
         this.config = config;
+        cards = new AtomicIntegerArray(config.tableSize);
+        for (int slot = 0; slot < config.tableSize; slot++)
+            cards.set(slot, EMPTY);
+        playerWords = wordsFor(config.players);
+        tokens = new AtomicLongArray(config.tableSize * playerWords);
+        freezes = new AtomicLongArray(config.players);
+        scores = new AtomicIntegerArray(config.players);
+        dirtySlots = new AtomicLongArray(wordsFor(config.tableSize));
+        dirtyPlayers = new AtomicLongArray(playerWords);
+
         timerPanel = new TimerPanel();
         gamePanel = new GamePanel();
         playersPanel = new PlayersPanel();
@@ -66,9 +126,63 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         addKeyListener(new InputManager(logger, config, players));
         addWindowListener(new WindowManager());
 
+        frameTimer = new Timer(FRAME_MILLIS, e -> frame());
+        frameTimer.setCoalesce(true); // a late frame is not followed by a burst of frames
+        frameTimer.start();
+
         EventQueue.invokeLater(() -> setVisible(true));
     }
 
+    /**
+     * Shows everything that changed since the last frame (runs on the event dispatch thread).
+     */
+    private void frame() {
+        for (int word = 0; word < dirtySlots.length(); word++)
+            for (long slots = dirtySlots.getAndSet(word, 0); slots != 0; slots &= slots - 1)
+                gamePanel.showSlot(word * Long.SIZE + Long.numberOfTrailingZeros(slots));
+        for (int word = 0; word < dirtyPlayers.length(); word++)
+            for (long players = dirtyPlayers.getAndSet(word, 0); players != 0; players &= players - 1)
+                playersPanel.showPlayer(word * Long.SIZE + Long.numberOfTrailingZeros(players));
+        if (dirtyTimer.getAndSet(false))
+            timerPanel.showTimer(timer.get());
+        int[] winners = this.winners;
+        if (winners != null && !winnerPanel.isVisible()) {
+            playersPanel.setVisible(false);
+            winnerPanel.announceWinner(winners);
+            winnerPanel.setVisible(true);
+        }
+    }
+
+    /**
+     * Sets bit i of a bit mask, without writing if it is already set (so repeated marks do not contend).
+     */
+    private static void setBit(AtomicLongArray bits, int i) {
+        int word = i / Long.SIZE;
+        long bit = 1L << i;
+        long current;
+        do {
+            current = bits.get(word);
+        } while ((current & bit) == 0 && !bits.compareAndSet(word, current, current | bit));
+    }
+
+    private static void clearBit(AtomicLongArray bits, int i) {
+        int word = i / Long.SIZE;
+        long bit = 1L << i;
+        long current;
+        do {
+            current = bits.get(word);
+        } while ((current & bit) != 0 && !bits.compareAndSet(word, current, current & ~bit));
+    }
+
+    private void setToken(int player, int slot, boolean placed) {
+        int word = slot * playerWords + player / Long.SIZE;
+        if (placed)
+            setBit(tokens, word * Long.SIZE + player % Long.SIZE);
+        else
+            clearBit(tokens, word * Long.SIZE + player % Long.SIZE);
+        setBit(dirtySlots, slot);
+    }
+
     private class TimerPanel extends JPanel {
 
         private final JLabel timerField;
@@ -90,125 +204,90 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             add(timerField);
         }
 
-        private void setCountdown(long millies, boolean warn) {
-            timerField.setText(generateTime(millies, warn));
-            timerField.setForeground(warn ? Color.RED : Color.BLACK);
-        }
-
-        private void setElapsed(long millies) {
-            timerField.setText("Elapsed time: " + millies / 1000);
+        private void showTimer(long timer) {
+            long millies = timer >>> TIMER_KIND_BITS;
+            int kind = (int) (timer & (1 << TIMER_KIND_BITS) - 1);
+            if (kind == ELAPSED) {
+                timerField.setText("Elapsed time: " + millies / 1000);
+            } else {
+                boolean warn = kind == COUNTDOWN_WARN;
+                timerField.setText(generateTime(millies, warn));
+                timerField.setForeground(warn ? Color.RED : Color.BLACK);
+            }
         }
     }
 
     private class GamePanel extends JLayeredPane {
 
-        private final Image emptyCard;
-        private final Image[] deck;
-        private final Image[][] grid;
-        private final boolean[][][] playerTokens;
-        private final JLabel[][] tokenText;
-
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
+        /**
+         * The card images, loaded on their first use (from png files) and scaled to the cell size.
+         */
+        private final CardAtlas cardImages;
+
+        /**
+         * The card shown in each slot (EMPTY if none).
+         */
+        private final int[] grid;
+        private final JLabel[] tokenText;
 
         private GamePanel() {
 
             setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
 
-            // init deck and load all pictures from png files
-            assert config.featureSize < 10; // otherwise there will be naming conflicts
-
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
-
-            grid = new Image[config.rows][config.columns];
-            tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
-            for (int row = 0; row < config.rows; row++) {
-                for (int column = 0; column < config.columns; column++) {
-                    // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
-
-                    // init the JLabel selection overlay
-                    tokenText[row][column] = new JLabel("");
-                    tokenText[row][column].setVerticalAlignment(JLabel.TOP);
-                    tokenText[row][column].setHorizontalAlignment(JLabel.CENTER);
-                    tokenText[row][column].setOpaque(false);
-                    tokenText[row][column].setBorder(BorderFactory.createLineBorder(Color.black));
-                    tokenText[row][column].setBounds((column * config.cellWidth), (row * config.cellHeight), config.cellWidth, config.cellHeight);
-                    add(tokenText[row][column]);
-                }
+            cardImages = new CardAtlas(config, new UtilImpl(config));
+
+            grid = new int[config.tableSize];
+            tokenText = new JLabel[config.tableSize];
+            for (int slot = 0; slot < config.tableSize; slot++) {
+                // init the cards on the table grid as empty cards
+                grid[slot] = EMPTY;
+
+                // init the JLabel selection overlay
+                tokenText[slot] = new JLabel("");
+                tokenText[slot].setVerticalAlignment(JLabel.TOP);
+                tokenText[slot].setHorizontalAlignment(JLabel.CENTER);
+                tokenText[slot].setOpaque(false);
+                tokenText[slot].setBorder(BorderFactory.createLineBorder(Color.black));
+                tokenText[slot].setBounds(x(slot), y(slot), config.cellWidth, config.cellHeight);
+                add(tokenText[slot]);
             }
         }
 
-        private void placeCard(int slot, int card) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
-        }
-
-        private void removeCard(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
+        private int x(int slot) {
+            return slot % config.columns * config.cellWidth;
         }
 
-        private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+        private int y(int slot) {
+            return slot / config.columns * config.cellHeight;
         }
 
-        private void removeTokens() {
-            for (int i = 0; i < config.tableSize; i++)
-                removeTokens(i);
+        /**
+         * Shows the current card and tokens of a slot, and repaints its cell only.
+         */
+        private void showSlot(int slot) {
+            grid[slot] = cards.get(slot);
+            tokenText[slot].setText(generatePlayersTokenText(slot));
+            repaint(x(slot), y(slot), config.cellWidth, config.cellHeight);
         }
 
-        private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
-            }
-        }
-
-        private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
-        }
-
-        private String generatePlayersTokenText(int row, int column) {
-            String text = "";
-            for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
-                    text = text.concat(config.playerNames[player] + ", ");
-            }
-            if (text.length() < 2)
-                return "";
-            return text.substring(0, text.length() - 2);
+        private String generatePlayersTokenText(int slot) {
+            StringBuilder text = new StringBuilder();
+            for (int word = 0; word < playerWords; word++)
+                for (long players = tokens.get(slot * playerWords + word); players != 0; players &= players - 1) {
+                    if (text.length() > 0)
+                        text.append(", ");
+                    text.append(config.playerNames[word * Long.SIZE + Long.numberOfTrailingZeros(players)]);
+                }
+            return text.toString();
         }
 
         @Override
         public void paintComponent(Graphics g) {
-            // draw card images
-            for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+            // draw the card images of the cells to repaint
+            Rectangle clip = g.getClipBounds();
+            for (int slot = 0; slot < config.tableSize; slot++)
+                if (clip == null || clip.intersects(x(slot), y(slot), config.cellWidth, config.cellHeight))
+                    cardImages.draw(g, grid[slot], x(slot), y(slot), this);
         }
     }
 
@@ -235,7 +314,11 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             }
         }
 
-        private void setFreeze(int player, long millies) {
+        /**
+         * Shows the current freeze and score of a player (a label repaints itself only if its text changed).
+         */
+        private void showPlayer(int player) {
+            long millies = freezes.get(player);
             if (millies > 0) {
                 this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
                 this.playersTable[0][player].setForeground(Color.RED);
@@ -243,10 +326,7 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
                 this.playersTable[0][player].setText(config.playerNames[player]);
                 this.playersTable[0][player].setForeground(Color.BLACK);
             }
-        }
-
-        private void setScore(int player, int score) {
-            playersTable[1][player].setText(Integer.toString(score));
+            playersTable[1][player].setText(Integer.toString(scores.get(player)));
         }
     }
 
@@ -276,63 +356,71 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     @Override
     public void placeCard(int card, int slot) {
-        gamePanel.placeCard(slot, card);
+        cards.set(slot, card);
+        setBit(dirtySlots, slot);
     }
 
     @Override
     public void removeCard(int slot) {
-        gamePanel.removeCard(slot);
+        cards.set(slot, EMPTY);
+        setBit(dirtySlots, slot);
     }
 
     @Override
     public void placeToken(int player, int slot) {
-        gamePanel.placeToken(player, slot);
+        setToken(player, slot, true);
     }
 
     @Override
     public void removeTokens() {
-        gamePanel.removeTokens();
+        for (int slot = 0; slot < config.tableSize; slot++)
+            removeTokens(slot);
     }
 
     @Override
     public void removeTokens(int slot) {
-        gamePanel.removeTokens(slot);
+        for (int word = 0; word < playerWords; word++)
+            tokens.set(slot * playerWords + word, 0);
+        setBit(dirtySlots, slot);
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        gamePanel.removeToken(player, slot);
+        setToken(player, slot, false);
     }
 
     @Override
     public void setCountdown(long millies, boolean warn) {
-        timerPanel.setCountdown(millies, warn);
+        timer.set(millies << TIMER_KIND_BITS | (warn ? COUNTDOWN_WARN : COUNTDOWN));
+        dirtyTimer.set(true);
     }
 
     @Override
     public void setElapsed(long millies) {
-        timerPanel.setElapsed(millies);
+        timer.set(millies << TIMER_KIND_BITS | ELAPSED);
+        dirtyTimer.set(true);
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        playersPanel.setFreeze(player, millies);
+        freezes.set(player, millies);
+        setBit(dirtyPlayers, player);
     }
 
     @Override
     public void setScore(int player, int score) {
-        playersPanel.setScore(player, score);
+        scores.set(player, score);
+        setBit(dirtyPlayers, player);
     }
 
     @Override
     public void announceWinner(int[] players) {
-        playersPanel.setVisible(false);
-        winnerPanel.announceWinner(players);
-        winnerPanel.setVisible(true);
+        winners = players.clone();
     }
 
     @Override
     public void dispose() {
+        frameTimer.stop();
         super.dispose();
     }
 }
@@ -31,6 +31,15 @@ public interface Util {
      */
     boolean testSet(int[] cards);
 
+    /**
+     * Finds the card that completes the given cards to a legal set.
+     *
+     * @param cards - an array of config.featureSize - 1 distinct card ids.
+     * @return - the id of the only card that completes the array to a legal set, or -1 if there is no such card (or
+     *           it is not unique, as is the case when config.featureSize < 3).
+     */
+    int completeSet(int[] cards);
+
     /**
      * Finds and returns up to count sets in the given collection of cards.
      *
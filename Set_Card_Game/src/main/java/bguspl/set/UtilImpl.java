@@ -4,7 +4,6 @@ import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.stream.IntStream;
 
 /**
  * The implementation of the UserInterface interface.
@@ -13,15 +12,45 @@ public class UtilImpl implements Util {
 
     private final Config config;
 
+    /**
+     * The features of every card id, precomputed: the value of feature f of card c is at c * featureCount + f.
+     */
+    private final int[] features;
+
+    /**
+     * The features of every card id as a packed bit vector: each feature is a field of featureSize bits in which
+     * only the bit of its value is set. As many fields as fit are packed into each long word, so the vector of
+     * card c takes the words c * packedWords to (c + 1) * packedWords - 1.
+     */
+    private final long[] packedFeatures;
+    private final int packedWords;
+    private final int fieldsPerWord;
+    private final long fieldMask;
+
     public UtilImpl(Config config) {
         this.config = config;
+
+        features = new int[config.deckSize * config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card) {
+            int value = card;
+            for (int i = config.featureCount - 1; i >= 0; --i) {
+                features[card * config.featureCount + i] = value % config.featureSize;
+                value /= config.featureSize;
+            }
+        }
+
+        fieldsPerWord = Math.max(1, Long.SIZE / config.featureSize);
+        packedWords = (config.featureCount + fieldsPerWord - 1) / fieldsPerWord;
+        fieldMask = config.featureSize >= Long.SIZE ? -1L : (1L << config.featureSize) - 1;
+        packedFeatures = new long[config.deckSize * packedWords];
+        for (int card = 0; card < config.deckSize; ++card)
+            for (int i = 0; i < config.featureCount; ++i)
+                packedFeatures[card * packedWords + i / fieldsPerWord] |=
+                        1L << (i % fieldsPerWord * config.featureSize + features[card * config.featureCount + i]);
     }
 
     private void cardToFeatures(int card, int[] features) {
-        for (int i = config.featureCount - 1; i >= 0; --i) {
-            features[i] = card % config.featureSize;
-            card /= config.featureSize;
-        }
+        System.arraycopy(this.features, card * config.featureCount, features, 0, config.featureCount);
     }
 
     @Override
@@ -34,60 +63,163 @@ public class UtilImpl implements Util {
     @Override
     public int[][] cardsToFeatures(int[] cards) {
         int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        for (int i = 0; i < cards.length; ++i)
+            cardToFeatures(cards[i], features[i]);
         return features;
     }
 
+    /**
+     * A feature is sameSame in all cards iff its field in the union of the packed vectors has a single bit set, and
+     * butDifferent iff it has a bit set per card; checking this needs no copies of the features.
+     */
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
+        if (cards.length < 2) return false; // a single card is both sameSame and butDifferent
+
+        if (packedWords == 1) {
+            long union = 0;
+            for (int card : cards)
+                union |= packedFeatures[card];
+            for (int i = 0; i < config.featureCount; ++i) {
+                int values = Long.bitCount(union >>> (i * config.featureSize) & fieldMask);
+                if (values != 1 && values != cards.length) return false;
+            }
+            return true;
+        }
+
         for (int i = 0; i < config.featureCount; ++i) {
-            boolean sameSame = true, butDifferent = true;
-
-            // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
-                    sameSame = false;
-                    break;
-                }
-
-            // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
-                        butDifferent = false;
-                        break;
-                    }
-
-            if (sameSame == butDifferent) return false;
+            int word = i / fieldsPerWord;
+            int shift = i % fieldsPerWord * config.featureSize;
+            long union = 0;
+            for (int card : cards)
+                union |= packedFeatures[card * packedWords + word] >>> shift;
+            int values = Long.bitCount(union & fieldMask);
+            if (values != 1 && values != cards.length) return false;
         }
         return true;
     }
 
+    @Override
+    public int completeSet(int[] cards) {
+        if (cards.length < 2 || cards.length != config.featureSize - 1) return -1;
+
+        int card = 0;
+        for (int i = 0; i < config.featureCount; ++i) {
+            int word = i / fieldsPerWord;
+            int shift = i % fieldsPerWord * config.featureSize;
+            long union = 0;
+            for (int c : cards)
+                union |= packedFeatures[c * packedWords + word] >>> shift;
+            union &= fieldMask;
+
+            // either all cards share the value, or all differ and the missing value is the only unset bit
+            int values = Long.bitCount(union);
+            if (values == cards.length) union = ~union & fieldMask;
+            else if (values != 1) return -1;
+            card = card * config.featureSize + Long.numberOfTrailingZeros(union);
+        }
+        return card;
+    }
+
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
         LinkedList<int[]> sets = new LinkedList<>();
         int n = deck.size();
         int r = config.featureSize;
-        int[] combination = new int[r];
+        if (r < 2 || n < r) return sets; // a single card is never a legal set
+
+        // copy the deck to a primitive array and mark which cards are present (and where)
+        int[] cards = new int[n];
+        int[] position = new int[config.deckSize];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < n; ++i) {
+            cards[i] = deck.get(i);
+            position[cards[i]] = i;
+        }
 
-        for (int i = 0; i < r; ++i)
-            combination[i] = i;
+        findSets(cards, position, new int[r], 0, 0, sets, count);
+        return sets;
+    }
 
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
-            if (testSet(cards)) {
-                sets.add(cards);
-                if (sets.size() >= count) return sets;
+    /**
+     * Extends the partial combination in lexicographic order of deck positions (the same order in which the
+     * combinations were originally enumerated), skipping every branch in which some feature is already neither
+     * all the same nor all different. For feature sizes of 3 and above the last card of a set is fully determined
+     * by the others, so instead of scanning for it the method computes it and looks it up.
+     *
+     * @return - true iff enough sets were found and the search should stop.
+     */
+    private boolean findSets(int[] cards, int[] position, int[] combination, int depth, int start,
+                             List<int[]> sets, int count) {
+        int r = combination.length;
+        if (r >= 3 && depth == r - 1) {
+            int card = completeSet(cards, combination, depth);
+            if (position[card] > combination[depth - 1]) {
+                combination[depth] = position[card];
+                return addSet(cards, combination, sets, count);
             }
+            return false;
+        }
 
-            // generate next combination in lexicographic order
-            int t = r - 1;
-            while (t != 0 && combination[t] == n - r + t) --t;
-            combination[t]++;
-            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        for (int i = start; i <= cards.length - r + depth; ++i) {
+            if (!isCompatible(cards, combination, depth, i)) continue;
+            combination[depth] = i;
+            if (depth == r - 1) {
+                if (addSet(cards, combination, sets, count)) return true;
+            } else if (findSets(cards, position, combination, depth + 1, i + 1, sets, count))
+                return true;
         }
-        return sets;
+        return false;
+    }
+
+    /**
+     * Checks if a card can be added to a partial combination (whose features are pairwise compatible) so that each
+     * feature is still either all the same or all different.
+     */
+    private boolean isCompatible(int[] cards, int[] combination, int depth, int candidate) {
+        if (depth < 2) return true; // one or two cards are always compatible
+        int first = cards[combination[0]] * config.featureCount;
+        int second = cards[combination[1]] * config.featureCount;
+        int next = cards[candidate] * config.featureCount;
+        for (int f = 0; f < config.featureCount; ++f) {
+            if (features[first + f] == features[second + f]) {
+                if (features[next + f] != features[first + f]) return false;
+            } else {
+                for (int j = 0; j < depth; ++j)
+                    if (features[cards[combination[j]] * config.featureCount + f] == features[next + f]) return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the only card that completes the given featureSize - 1 compatible cards into a legal set.
+     */
+    private int completeSet(int[] cards, int[] combination, int depth) {
+        int allValuesSum = config.featureSize * (config.featureSize - 1) / 2;
+        int first = cards[combination[0]] * config.featureCount;
+        int second = cards[combination[1]] * config.featureCount;
+        int card = 0;
+        for (int f = 0; f < config.featureCount; ++f) {
+            int value = features[first + f];
+            if (features[second + f] != value) {
+                // all different: the missing value is the one not used by any of the other cards
+                value = allValuesSum;
+                for (int j = 0; j < depth; ++j)
+                    value -= features[cards[combination[j]] * config.featureCount + f];
+            }
+            card = card * config.featureSize + value;
+        }
+        return card;
+    }
+
+    private boolean addSet(int[] cards, int[] combination, List<int[]> sets, int count) {
+        int[] set = new int[combination.length];
+        for (int i = 0; i < set.length; ++i)
+            set[i] = cards[combination[i]];
+        Arrays.sort(set);
+        sets.add(set);
+        return sets.size() >= count;
     }
 
     public void spin() {
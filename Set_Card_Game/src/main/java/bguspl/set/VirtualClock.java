@@ -0,0 +1,97 @@
+package bguspl.set;
+
+import java.util.PriorityQueue;
+
+/**
+ * This class is a clock whose time only moves when it is told to, for running a game as a discrete-event simulation
+ * on a single thread. Sleeping does not wait: it moves the time forward, as the sleeping thread is the only one
+ * acting at that moment. Scheduled tasks do not run by themselves either: whoever moves the time runs the tasks due
+ * (see runDueTasks).
+ */
+public class VirtualClock implements Clock {
+
+    /**
+     * A scheduled task, ordered by its time and then by the order the tasks were scheduled in.
+     */
+    private static class Task implements Timeout, Comparable<Task> {
+
+        final long time;
+        final long order;
+        final Runnable task;
+        boolean cancelled;
+
+        Task(long time, long order, Runnable task) {
+            this.time = time;
+            this.order = order;
+            this.task = task;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            return time != other.time ? Long.compare(time, other.time) : Long.compare(order, other.order);
+        }
+    }
+
+    private long now;
+
+    /**
+     * The tasks scheduled and not run yet, and the number of tasks scheduled so far.
+     */
+    private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+    private long scheduled;
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    @Override
+    public void sleep(long millis) {
+        if (millis > 0)
+            now += millis;
+    }
+
+    @Override
+    public Timeout schedule(Runnable task, long delayMillis) {
+        Task timeout = new Task(now + Math.max(0, delayMillis), scheduled++, task);
+        tasks.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Moves the time forward to the given time (never backwards).
+     *
+     * @param time - the time to move to, in milliseconds.
+     */
+    public void advanceTo(long time) {
+        now = Math.max(now, time);
+    }
+
+    /**
+     * @return - the time of the next task scheduled, or Long.MAX_VALUE if there is none.
+     */
+    public long nextTaskTime() {
+        while (!tasks.isEmpty() && tasks.peek().cancelled)
+            tasks.poll();
+        return tasks.isEmpty() ? Long.MAX_VALUE : tasks.peek().time;
+    }
+
+    /**
+     * Runs the tasks due by now, in order (including the tasks they schedule for now).
+     *
+     * @return - true iff a task ran.
+     */
+    public boolean runDueTasks() {
+        boolean ran = false;
+        while (nextTaskTime() <= now) {
+            tasks.poll().task.run();
+            ran = true;
+        }
+        return ran;
+    }
+}
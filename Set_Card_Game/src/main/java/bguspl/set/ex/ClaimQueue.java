@@ -0,0 +1,124 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a bounded, lock-free queue of set claims, published by many players and taken by the dealer alone.
+ * Claims are stored as primitive records (player id, slots and claim time) in preallocated arrays, so publishing and
+ * taking a claim allocate nothing.
+ *
+ * A cell holds a sequence number that tells whose turn it is: position p of the queue is free for a producer when
+ * the sequence of its cell is p, and holds a published claim when it is p + 1. A producer reserves a position with a
+ * single CAS on the tail, writes its record, and then publishes it by advancing the sequence.
+ */
+public class ClaimQueue {
+
+    /**
+     * A claim record taken from the queue (reused by the dealer, so taking claims allocates nothing either).
+     */
+    public static class Claim {
+        public int player;
+        public final int[] slots;
+        public long time;
+
+        public Claim(int setSize) {
+            slots = new int[setSize];
+        }
+    }
+
+    private final int mask;
+    private final int setSize;
+
+    private final AtomicLongArray sequences;
+    private final int[] players;
+    private final int[] slots;
+    private final long[] times;
+
+    /**
+     * The next position to be reserved by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The next position to be taken by the consumer (only accessed by the consumer thread).
+     */
+    private long head;
+
+    /**
+     * @param capacity - the minimal number of claims the queue can hold (rounded up to a power of 2).
+     * @param setSize  - the number of slots in a claim.
+     */
+    public ClaimQueue(int capacity, int setSize) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        this.setSize = setSize;
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++)
+            sequences.set(i, i);
+        players = new int[size];
+        slots = new int[size * setSize];
+        times = new long[size];
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Publishes a claim (may be called from any thread).
+     *
+     * @param player - the id of the claiming player.
+     * @param slots  - the slots of the claimed set (setSize of them).
+     * @param time   - the time of the claim (in nanos).
+     * @return - true iff the claim was published, false if the queue is full.
+     */
+    public boolean offer(int player, int[] slots, long time) {
+        long position;
+        while (true) {
+            position = tail.get();
+            long difference = sequences.get((int) position & mask) - position;
+            if (difference < 0)
+                return false; // the cell still holds a claim from the previous round: the queue is full
+            if (difference == 0 && tail.compareAndSet(position, position + 1))
+                break;
+        }
+        int cell = (int) position & mask;
+        players[cell] = player;
+        System.arraycopy(slots, 0, this.slots, cell * setSize, setSize);
+        times[cell] = time;
+        sequences.set(cell, position + 1); // a full fence, so the claim is visible before a wake-up is posted
+        return true;
+    }
+
+    /**
+     * Takes the oldest published claim (must only be called from the consumer thread).
+     *
+     * @param claim - the record to copy the claim into.
+     * @return - true iff a claim was taken, false if there is no published claim.
+     */
+    public boolean poll(Claim claim) {
+        int cell = (int) head & mask;
+        if (sequences.get(cell) != head + 1)
+            return false;
+        claim.player = players[cell];
+        System.arraycopy(slots, cell * setSize, claim.slots, 0, setSize);
+        claim.time = times[cell];
+        sequences.lazySet(cell, head + mask + 1);
+        head++;
+        return true;
+    }
+
+    /**
+     * Takes as many published claims as fit in the batch (must only be called from the consumer thread).
+     *
+     * @param batch - the records to copy the claims into, in the order they were published.
+     * @return - the number of claims taken.
+     */
+    public int drainTo(Claim[] batch) {
+        int count = 0;
+        while (count < batch.length && poll(batch[count]))
+            count++;
+        return count;
+    }
+}
@@ -1,14 +1,12 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.Journal;
 
-import java.util.Collections;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Queue;
-import java.util.Random;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 
 /**
  * This class manages the dealer's threads and data
@@ -16,12 +14,14 @@ import java.util.stream.IntStream;
 public class Dealer implements Runnable {
 
     final int START = 0;
-    final int SETS_TO_CHECK = 1;
     final int EMPTY = -1;
-    final int ADD_WAITING_SLEEP_MILLIS = 10;
     final int TIME_WARNING_WAIT = 10;
-    final int NOT_WARNING_WAIT = 500;
+    final int SECOND_IN_MILLIS = 1000;
     final boolean SHOULD_RESET_TIME = true;
+    /**
+     * The largest deck whose sets left are counted by a SetIndex (indexing n cards costs O(n^2) for sets of 3 cards).
+     */
+    final int MAX_INDEXED_CARDS = 729;
     /**
      * The game environment object.
      */
@@ -34,16 +34,58 @@ public class Dealer implements Runnable {
     private final Player[] players;
 
     /**
-     * The list of card ids that are left in the dealer's deck.
+     * The card ids that are left in the dealer's deck.
+     */
+    private final Deck deck;
+
+    /**
+     * The count of legal sets among the cards left in the game (in the deck and on the table), kept up to date as sets
+     * are collected. Only kept for sets of 3 cards: an update picks featureSize - 2 cards to go with the card, so
+     * it costs O(n^(featureSize - 2)). Built when first needed, and only for decks of up to MAX_INDEXED_CARDS cards
+     * (null until then, or if not kept).
+     */
+    private SetIndex setsLeft;
+    private final boolean indexSetsLeft;
+
+    /**
+     * True iff a legal set is left in the game, and true iff a set was collected since it was checked.
      */
-    private final List<Integer> deck;
+    private boolean hasSetsLeft;
+    private boolean setsLeftChanged;
 
     /**
      * True iff game should be terminated.
      */
     private volatile boolean terminate;
 
-    public volatile Queue<Integer> waitingPlayers;
+    /**
+     * The set claims waiting for the dealer's verdict, in the order they were made.
+     */
+    private final ClaimQueue claims;
+
+    /**
+     * True iff a CLAIM event is posted and not yet handled (so a burst of claims wakes the dealer once).
+     */
+    private final AtomicBoolean claimPosted;
+
+    /**
+     * The records the dealer takes claims into, and the verdict of each (SET, NOT_SET or STALE, see Journal).
+     */
+    private final ClaimQueue.Claim[] batch;
+    private final int[] verdicts;
+
+    /**
+     * The slots of the sets collected from the batch of claims being adjudicated (as flags, and in the order they were
+     * collected), and the cards of the claim being tested.
+     */
+    private final boolean[] collected;
+    private final int[] collectedSlots;
+    private final int[] claimedCards;
+
+    /**
+     * The dealer's events: set claims, countdown display updates, the reshuffle deadline and termination.
+     */
+    private final DealerScheduler scheduler;
 
     /**
      * The time when the dealer needs to reshuffle the deck due to turn timeout.
@@ -52,6 +94,10 @@ public class Dealer implements Runnable {
     private Thread[] playerThreads;
     public boolean cardsPlaced;
     private boolean shouldPrintHints;
+
+    /**
+     * The time of the last action (reshuffle or set collected), for the elapsed time display.
+     */
     private long lastActionTime;
 
     // public Semaphore dealerSemaphore;
@@ -60,8 +106,20 @@ public class Dealer implements Runnable {
         this.env = env;
         this.table = table;
         this.players = players;
-        deck = IntStream.range(START, env.config.deckSize).boxed().collect(Collectors.toList());
-        waitingPlayers = new LinkedList<Integer>();
+        deck = new Deck(env.config.deckSize, env.random);
+        indexSetsLeft = env.config.featureSize == 3 && env.config.deckSize <= MAX_INDEXED_CARDS;
+        hasSetsLeft = true; // a full deck has a legal set, e.g. the cards that only differ in their first feature
+        setsLeftChanged = false;
+        claims = new ClaimQueue(2 * env.config.players, env.config.featureSize);
+        claimPosted = new AtomicBoolean(false);
+        batch = new ClaimQueue.Claim[claims.capacity()];
+        for (int i = 0; i < batch.length; i++)
+            batch[i] = new ClaimQueue.Claim(env.config.featureSize);
+        verdicts = new int[batch.length];
+        collected = new boolean[env.config.tableSize];
+        collectedSlots = new int[env.config.tableSize]; // the sets collected from a batch have no slot in common
+        claimedCards = new int[env.config.featureSize];
+        scheduler = new DealerScheduler(env.clock, env.metrics);
         playerThreads = new Thread[env.config.players];
         cardsPlaced = false;
         shouldPrintHints = true;
@@ -74,67 +132,110 @@ public class Dealer implements Runnable {
     @Override
     public void run() {
         for (int i = 0; i < players.length; i++) {
-            playerThreads[i] = new Thread(players[i]);
+            playerThreads[i] = env.newThread(players[i], "player-" + players[i].id);
             playerThreads[i].start();
         }
-        if (env.config.turnTimeoutMillis >= 0)
-            reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-        while (!shouldFinish()) {
-            placeCardsOnTable();
-            timerLoop();
-            if (env.config.turnTimeoutMillis >= 0)
-                updateTimerDisplay(SHOULD_RESET_TIME);
-            if (!deck.isEmpty()){
-                removeAllCardsFromTable();
-                lastActionTime = 0;
+        start();
+        while (!terminate) {
+            printHints();
+            try {
+                handle(scheduler.next());
+            } catch (InterruptedException ignored) {
             }
         }
+        finish();
+        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * Deals the first table.
+     */
+    void start() {
+        reshuffle();
+    }
+
+    /**
+     * Handles the next event if one is due, without waiting (for running the game without a dealer thread, see
+     * Simulation).
+     *
+     * @return - true iff an event was handled.
+     */
+    boolean step() {
+        DealerScheduler.Event event = scheduler.poll();
+        if (event == null)
+            return false;
+        handle(event);
+        return true;
+    }
+
+    /**
+     * @return - the time of the next timed event of the dealer, or DealerScheduler.NEVER if none is scheduled.
+     */
+    long nextEventTime() {
+        return scheduler.nextTime();
+    }
+
+    boolean isTerminated() {
+        return terminate;
+    }
+
+    /**
+     * Collects the cards from the table and announces the winners.
+     */
+    void finish() {
         removeAllCardsFromTable();
-        lastActionTime = 0;
         announceWinners();
-        env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     /**
-     * The inner loop of the dealer thread that runs as long as the countdown did
-     * not time out.
+     * Does the work of a single event: adjudicates set claims, updates the countdown display or reshuffles the deck.
+     *
+     * @param event - the event to handle.
      */
-    private void timerLoop() {
-        while (!terminate && (System.currentTimeMillis() < reshuffleTime || env.config.turnTimeoutMillis == 0)) {
-            if (shouldPrintHints && env.config.hints) {
-                table.hints();
-                shouldPrintHints = false;
-            }
-            sleepUntilWokenOrTimeout();
-            if (env.config.turnTimeoutMillis > 0)
-                updateTimerDisplay(!SHOULD_RESET_TIME);
-            else if (env.config.turnTimeoutMillis < 0) {
-                if (env.util.findSets(this.arrayToList(table.slotToCard), SETS_TO_CHECK).isEmpty()) {
-                    if (deck.isEmpty())
-                        terminate = true;
-                    else{
-                        removeAllCardsFromTable();
-                    }
-                }
-            }
-            else{
-                if (env.util.findSets(this.arrayToList(table.slotToCard), SETS_TO_CHECK).isEmpty()) {
-                    if (deck.isEmpty())
-                        terminate = true;
-                    else{
-                        removeAllCardsFromTable();
-                        lastActionTime = 0;
-                    }
+    private void handle(DealerScheduler.Event event) {
+        switch (event) {
+            case CLAIM:
+                if (removeCardsFromTable()) {
+                    placeCardsOnTable();
+                    if (env.config.turnTimeoutMillis <= 0 && !table.hasSets())
+                        reshuffle();
                 }
+                break;
+            case TICK:
                 updateTimerDisplay(!SHOULD_RESET_TIME);
+                break;
+            case RESHUFFLE:
+                reshuffle();
+                break;
+            case TERMINATE:
+                break;
+        }
+    }
+
+    /**
+     * Returns the cards on the table to the deck and deals a new table, or finishes the game if no legal set is left.
+     * In modes without a countdown timer, deals again until there is a legal set on the table.
+     */
+    private void reshuffle() {
+        do {
+            if (!deck.isEmpty())
+                removeAllCardsFromTable();
+            if (shouldFinish()) {
+                terminate = true;
+                return;
             }
-            int deckSizeBeforeRemove = deck.size();
-            removeCardsFromTable();
-            if(deckSizeBeforeRemove > deck.size()){
-                lastActionTime = 0;
-            }
+            env.metrics.reshuffles.increment();
+            env.journal.record(Journal.Event.RESHUFFLE, EMPTY, EMPTY, deck.size());
             placeCardsOnTable();
+            updateTimerDisplay(SHOULD_RESET_TIME);
+        } while (env.config.turnTimeoutMillis <= 0 && !table.hasSets());
+    }
+
+    private void printHints() {
+        if (shouldPrintHints && env.config.hints) {
+            table.hints();
+            shouldPrintHints = false;
         }
     }
 
@@ -146,16 +247,15 @@ public class Dealer implements Runnable {
         terminate = true;
         for (int i = players.length - 1; i >= 0; i--) {
             players[i].terminate();
+            if (playerThreads[i] == null)
+                continue; // terminated before the game started
             playerThreads[i].interrupt();
             try {
                 playerThreads[i].join();
             } catch (InterruptedException e) {
             }
         }
-        synchronized (this) {
-            this.notifyAll();
-        }
-
+        scheduler.post(DealerScheduler.Event.TERMINATE);
     }
 
     /**
@@ -164,49 +264,102 @@ public class Dealer implements Runnable {
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, SETS_TO_CHECK).isEmpty();
+        return terminate || !hasSetsLeft();
     }
 
     /**
-     * Checks cards should be removed from the table and removes them.
+     * Cards only leave the game when a set is collected, so the check is only done again after that: by setsLeft if it
+     * is kept (indexing the cards left the first time), or else by a search that stops at the first set found.
+     *
+     * @return - true iff there is a legal set among the cards in the deck and on the table.
      */
-    private void removeCardsFromTable() {
-        // TODO implement
-        int awardplayer = EMPTY;
-        synchronized (waitingPlayers) {
-            if (!waitingPlayers.isEmpty()) {
-                awardplayer = waitingPlayers.remove();
+    private boolean hasSetsLeft() {
+        if (setsLeftChanged) {
+            if (setsLeft == null && indexSetsLeft) {
+                setsLeft = new SetIndex(env);
+                for (int card : cardsLeft())
+                    setsLeft.add(card);
             }
+            hasSetsLeft = setsLeft != null ? setsLeft.hasSets() : !env.util.findSets(cardsLeft(), 1).isEmpty();
+            setsLeftChanged = false;
         }
-        if (awardplayer != EMPTY) {
-            env.logger.info("working on player " + (awardplayer + 1));
-            if (isSetStillValid(awardplayer)) {
-                boolean isSet = env.util.testSet(convertToCards(players[awardplayer].set));
-                if (isSet) {
-                    for (int i = 0; i < players[awardplayer].set.length; i++) {
-                        int slotId = players[awardplayer].set[i];
-                        for (int j = 0; j < players.length; j++) {
-                            players[j].removeToken(slotId);
-                        }
-                        table.removeCard(slotId);
-                    }
-                    if (env.config.turnTimeoutMillis >= 0) {
-                        if(env.config.turnTimeoutMillis == 0)
-                            lastActionTime = 0;
-                        reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
-                        updateTimerDisplay(SHOULD_RESET_TIME);
+        return hasSetsLeft;
+    }
+
+    /**
+     * @return - the cards in the deck and on the table.
+     */
+    private List<Integer> cardsLeft() {
+        List<Integer> cards = new ArrayList<>(deck.size() + table.slotToCard.length);
+        deck.addTo(cards);
+        for (int card : table.slotToCard)
+            if (card != EMPTY)
+                cards.add(card);
+        return cards;
+    }
+
+    /**
+     * Checks cards should be removed from the table and removes them.
+     * All the claims made since the last check are taken at once and adjudicated together, in the order they were
+     * made: a claim on a card of a set collected by an earlier claim of the batch is stale (handled with no penalty),
+     * and the cards of all the sets collected are removed from the table at once.
+     *
+     * @return - true iff a set was collected and its cards were removed.
+     */
+    private boolean removeCardsFromTable() {
+        // TODO implement
+        claimPosted.set(false); // claims made from now on post a new event
+        long start = System.nanoTime();
+        boolean removed = false;
+        for (int count; (count = claims.drainTo(batch)) > 0; ) {
+            int collectedCount = 0;
+            for (int i = 0; i < count; i++) {
+                ClaimQueue.Claim claim = batch[i];
+                if (env.logger.isLoggable(Level.INFO))
+                    env.logger.log(Level.INFO, "working on player {0} (claimed {1} us ago)",
+                            new Object[]{claim.player + 1, (System.nanoTime() - claim.time) / 1000});
+                if (!isSetStillValid(claim))
+                    verdicts[i] = Journal.STALE;
+                else if (env.util.testSet(convertToCards(claim.slots))) {
+                    verdicts[i] = Journal.SET;
+                    for (int slot : claim.slots) {
+                        collected[slot] = true;
+                        collectedSlots[collectedCount++] = slot;
                     }
-                    players[awardplayer].shouldPoint = true;
-                    shouldPrintHints = true;
-                } else {
-                    players[awardplayer].shouldPenalty = true;
-                }
+                } else
+                    verdicts[i] = Journal.NOT_SET;
             }
-        }
-        for (int i = 0; i < players.length; i++)
-            synchronized (players[i]) {
-                players[i].notifyAll();
+            if (collectedCount > 0) {
+                if (setsLeft != null)
+                    for (int i = 0; i < collectedCount; i++)
+                        setsLeft.remove(table.slotToCard[collectedSlots[i]]);
+                setsLeftChanged = true;
+                table.removeCards(collectedSlots, collectedCount); // along with the tokens of all the players
+                for (int i = 0; i < collectedCount; i++)
+                    collected[collectedSlots[i]] = false;
+                if (env.config.turnTimeoutMillis >= 0)
+                    updateTimerDisplay(SHOULD_RESET_TIME);
+                shouldPrintHints = true;
+                removed = true;
             }
+            // the verdicts are given once the cards are gone
+            for (int i = 0; i < count; i++) {
+                ClaimQueue.Claim claim = batch[i];
+                if (verdicts[i] == Journal.SET) {
+                    players[claim.player].shouldPoint = true;
+                    env.metrics.claimsSet.increment();
+                } else if (verdicts[i] == Journal.NOT_SET) {
+                    players[claim.player].shouldPenalty = true;
+                    env.metrics.claimsNotSet.increment();
+                } else
+                    env.metrics.claimsStale.increment();
+                env.journal.record(Journal.Event.VERDICT, claim.player, EMPTY, verdicts[i]);
+                env.metrics.claimToVerdict.recordSince(claim.time);
+                players[claim.player].claimHandled();
+            }
+        }
+        env.metrics.dealerClaims.recordSince(start);
+        return removed;
     }
 
     /**
@@ -215,57 +368,50 @@ public class Dealer implements Runnable {
     private void placeCardsOnTable() {
         // TODO implement
         cardsPlaced = false;
-        Collections.shuffle(deck);
+        long start = System.nanoTime();
         List<Integer> empties = table.getAllEmptySlots();
-        Random rand = new Random();
-        while (!deck.isEmpty() && !empties.isEmpty()) {
-            int randomIndex = rand.nextInt(empties.size());
-            table.placeCard(deck.remove(START), empties.remove(randomIndex));
+        int count = Math.min(deck.size(), empties.size());
+        int[] cards = new int[count];
+        int[] slots = new int[count];
+        for (int i = 0; i < count; i++) {
+            int randomIndex = env.random.nextInt(empties.size());
+            cards[i] = deck.draw();
+            slots[i] = empties.remove(randomIndex);
         }
+        table.placeCards(cards, slots); // all at once, with a single table delay
+        env.metrics.dealerPlaceCards.recordSince(start);
         cardsPlaced = true;
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some
-     * purpose.
-     */
-    private synchronized void sleepUntilWokenOrTimeout() {
-        // TODO implement
-        try {
-
-            if (reshuffleTime - System.currentTimeMillis() < env.config.turnTimeoutWarningMillis)
-                this.wait(TIME_WARNING_WAIT);
-            else
-
-                this.wait(NOT_WARNING_WAIT);
-        } catch (InterruptedException e) {
-        }
-    }
-
-    /**
-     * Reset and/or update the countdown and the countdown display.
+     * Reset and/or update the countdown and the countdown display, and schedule the next display update for when
+     * the displayed value changes.
      */
     private void updateTimerDisplay(boolean reset) {
         // TODO implement
-        boolean color = false;
+        long now = env.clock.currentTimeMillis();
         if (env.config.turnTimeoutMillis > 0) {
             if (reset) {
-                env.ui.setCountdown(env.config.turnTimeoutMillis, color);
-            } else {
-                if (reshuffleTime - System.currentTimeMillis() < env.config.turnTimeoutWarningMillis)
-                    color = true;
-                env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), color);
+                reshuffleTime = now + env.config.turnTimeoutMillis;
+                scheduler.scheduleReshuffle(reshuffleTime);
             }
+            long remaining = Math.max(reshuffleTime - now, 0);
+            boolean warn = remaining < env.config.turnTimeoutWarningMillis;
+            env.ui.setCountdown(remaining, warn);
+            if (remaining == 0)
+                scheduler.scheduleTick(DealerScheduler.NEVER);
+            else if (warn)
+                scheduler.scheduleTick(now + Math.min(TIME_WARNING_WAIT, remaining));
+            else // the seconds shown change, or the warning starts
+                scheduler.scheduleTick(now + Math.min(remaining % SECOND_IN_MILLIS + 1,
+                        remaining - env.config.turnTimeoutWarningMillis + 1));
         }
         else if(env.config.turnTimeoutMillis == 0){
-            if(reset){
-                lastActionTime = 0;
-                reshuffleTime = System.currentTimeMillis();
-            }
-            else{
-                lastActionTime = System.currentTimeMillis() - reshuffleTime;
-            }
-            env.ui.setElapsed(lastActionTime);
+            if (reset)
+                lastActionTime = now;
+            long elapsed = now - lastActionTime;
+            env.ui.setElapsed(elapsed);
+            scheduler.scheduleTick(now + SECOND_IN_MILLIS - elapsed % SECOND_IN_MILLIS);
         }
     }
 
@@ -274,33 +420,24 @@ public class Dealer implements Runnable {
      */
     private void removeAllCardsFromTable() {
         // TODO implement
-        synchronized (table) {
-            for (int i = 0; i < table.slotToCard.length; i++) {
-                if (table.slotToCard[i] != null) {
-                    deck.add(table.slotToCard[i]);
-                    table.removeCard(i);
-                }
-            }
-            for (int i = 0; i < table.tokenToSlot.length; i++) {
-                synchronized (players[i]) {
-                    for (int j = 0; j < table.tokenToSlot[i].length; j++) {
-                        players[i].removeToken(j);
-                    }
-                }
-            }
-            for (int i = 0; i < players.length; i++) {
-                synchronized (players[i]) {
-                    players[i].notifyAll();
-                }
+        int[] slots = new int[table.slotToCard.length];
+        int count = 0;
+        for (int i = 0; i < table.slotToCard.length; i++) {
+            if (table.slotToCard[i] != EMPTY) {
+                deck.add(table.slotToCard[i]);
+                slots[count++] = i;
             }
-            waitingPlayers = new LinkedList<>();
-            if (env.config.turnTimeoutMillis >= 0){
-                if(env.config.turnTimeoutMillis == 0)
-                    lastActionTime = 0;
-                reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
-            }
-            shouldPrintHints = true;
         }
+        table.removeCards(slots, count); // all at once, with a single table delay
+        for (int claimed; (claimed = claims.drainTo(batch)) > 0; )
+            for (int i = 0; i < claimed; i++) {
+                ClaimQueue.Claim claim = batch[i];
+                env.metrics.claimsStale.increment();
+                env.metrics.claimToVerdict.recordSince(claim.time);
+                env.journal.record(Journal.Event.VERDICT, claim.player, EMPTY, Journal.STALE);
+                players[claim.player].claimHandled(); // the claimed cards are gone
+            }
+        shouldPrintHints = true;
     }
 
     /**
@@ -310,6 +447,9 @@ public class Dealer implements Runnable {
         // TODO implement
         int[] winners = findWinners();
         env.ui.announceWinner(winners);
+        for (int winner : winners)
+            env.journal.record(Journal.Event.WINNER, winner, EMPTY, players[winner].score());
+        env.journal.flush();
         this.terminate();
     }
 
@@ -335,38 +475,46 @@ public class Dealer implements Runnable {
         return winners;
     }
 
-    private boolean isSetStillValid(int id) {
-        for (int i = 0; i < players[id].set.length; i++) {
-            if (players[id].set[i] == EMPTY)
+    /**
+     * Checks that all the claimed cards are still on the table with the claiming player's tokens on them (and were not
+     * collected by an earlier claim of the batch).
+     */
+    private boolean isSetStillValid(ClaimQueue.Claim claim) {
+        for (int slot : claim.slots) {
+            if (table.slotToCard[slot] == EMPTY || collected[slot])
                 return false;
-            else if (table.slotToCard[players[id].set[i]] == null)
+            else if (!table.isTokenPlaced(claim.player, slot))
                 return false;
         }
         return true;
     }
 
+    /**
+     * @return - the cards on the slots of a claim (in a buffer reused for every claim).
+     */
     private int[] convertToCards(int[] setSlots) {
-        int[] cards = new int[setSlots.length];
-        for (int i = 0; i < cards.length; i++) {
-            cards[i] = table.slotToCard[setSlots[i]];
+        for (int i = 0; i < claimedCards.length; i++) {
+            claimedCards[i] = table.slotToCard[setSlots[i]];
         }
-        return cards;
+        return claimedCards;
     }
 
-    public void addWaiting(int id) {
-        try {
-            Thread.sleep(ADD_WAITING_SLEEP_MILLIS);
-        } catch (InterruptedException e) {
-        }
-        waitingPlayers.add(id);
-    }
-
-    private List<Integer> arrayToList(Integer[] cards) {
-        List<Integer> tableDeck = new LinkedList<>();
-        for (int i = 0; i < cards.length; i++) {
-            if (cards[i] != null)
-                tableDeck.add(cards[i]);
+    /**
+     * Submits a set claim for the dealer's verdict (called by the claiming player's thread).
+     *
+     * @param id    - the id of the claiming player.
+     * @param slots - the slots of the claimed set.
+     * @return - true iff the claim was submitted (false if too many claims are already waiting).
+     */
+    public boolean claimSet(int id, int[] slots) {
+        if (!claims.offer(id, slots, System.nanoTime())) {
+            env.metrics.claimsDropped.increment();
+            return false;
         }
-        return tableDeck;
+        env.metrics.claims.increment();
+        env.journal.recordClaim(id, slots);
+        if (claimPosted.compareAndSet(false, true))
+            scheduler.post(DealerScheduler.Event.CLAIM);
+        return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+package bguspl.set.ex;
+
+import bguspl.set.Clock;
+import bguspl.set.Metrics;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is the dealer's event queue.
+ * Events posted by other threads (set claims, termination) are handled in the order they arrive, and timed events
+ * (countdown display ticks, the reshuffle deadline) when their time comes. The dealer thread blocks in next() until
+ * one of them is due, so it does no work while nothing happens.
+ */
+class DealerScheduler {
+
+    enum Event {
+        CLAIM,
+        TICK,
+        RESHUFFLE,
+        TERMINATE
+    }
+
+    static final long NEVER = Long.MAX_VALUE;
+
+    /**
+     * The source of the time of the timed events.
+     */
+    private final Clock clock;
+
+    private final Metrics metrics;
+
+    /**
+     * The events posted by the players and the game (handled before any timed event).
+     */
+    private final BlockingQueue<Event> posted = new LinkedBlockingQueue<>();
+
+    /**
+     * The times of the next timed events (NEVER if not scheduled). Only accessed by the dealer thread.
+     */
+    private long tickTime = NEVER;
+    private long reshuffleTime = NEVER;
+
+    DealerScheduler(Clock clock, Metrics metrics) {
+        this.clock = clock;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Adds an event to be handled as soon as possible (may be called from any thread).
+     *
+     * @param event - the event to post.
+     */
+    void post(Event event) {
+        posted.add(event);
+    }
+
+    /**
+     * Schedules the next countdown display update, replacing the previously scheduled one.
+     *
+     * @param time - the time (in millis) of the update, or NEVER to cancel it.
+     */
+    void scheduleTick(long time) {
+        tickTime = time;
+    }
+
+    /**
+     * Schedules the reshuffle deadline, replacing the previously scheduled one.
+     *
+     * @param time - the time (in millis) of the reshuffle, or NEVER to cancel it.
+     */
+    void scheduleReshuffle(long time) {
+        reshuffleTime = time;
+    }
+
+    /**
+     * Waits until an event is due and returns it.
+     *
+     * @return - the next event to handle.
+     * @throws InterruptedException - if the dealer thread was interrupted while waiting.
+     */
+    Event next() throws InterruptedException {
+        while (true) {
+            Event event = poll();
+            if (event != null)
+                return event;
+
+            long wakeTime = nextTime();
+            event = wakeTime == NEVER ? posted.take()
+                    : posted.poll(wakeTime - clock.currentTimeMillis(), TimeUnit.MILLISECONDS);
+            metrics.dealerWakeups.increment();
+            if (event != null)
+                return event;
+            if (clock.currentTimeMillis() < nextTime())
+                metrics.dealerIdleWakeups.increment(); // woke up before the timed event was due
+        }
+    }
+
+    /**
+     * Returns the next event if one is due, without waiting.
+     *
+     * @return - the next event to handle, or null if none is due yet.
+     */
+    Event poll() {
+        Event event = posted.poll();
+        if (event != null)
+            return event;
+
+        long now = clock.currentTimeMillis();
+        if (reshuffleTime <= now) {
+            reshuffleTime = NEVER;
+            return Event.RESHUFFLE;
+        }
+        if (tickTime <= now) {
+            tickTime = NEVER;
+            return Event.TICK;
+        }
+        return null;
+    }
+
+    /**
+     * @return - the time of the next timed event, or NEVER if none is scheduled.
+     */
+    long nextTime() {
+        return Math.min(tickTime, reshuffleTime);
+    }
+}
@@ -0,0 +1,136 @@
+package bguspl.set.ex;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+
+/**
+ * This class holds the cards left in the dealer's deck, drawn at random one at a time.
+ * The deck is a virtual array of its cards: a card is drawn by swapping a random card of the array with the last one
+ * and taking it off the end, and a card is returned by putting it at the end, both in O(1) and with no shuffling.
+ * The array starts as the identity (card i at index i) and only the entries that differ from it are kept, so a deck of
+ * any size takes memory in proportion to the cards that moved, not to its size.
+ *
+ * @inv 0 <= size
+ * @inv cardAt(0 .. size - 1) are the cards in the deck, each once
+ */
+public class Deck {
+
+    final int FREE = -1;
+
+    /**
+     * The highest load factor of the entries table before it grows.
+     */
+    private static final double MAX_LOAD = 0.5;
+
+    /**
+     * The game's source of randomness (see Env.random).
+     */
+    private final Random random;
+
+    private int size;
+
+    /**
+     * The entries that differ from the identity: index keys[i] of the virtual array holds card values[i] (open
+     * addressing with linear probing, FREE keys are free; entries are never removed, only overwritten).
+     */
+    private int[] keys;
+    private int[] values;
+    private int entries;
+
+    /**
+     * @param cards  - the number of cards in a full deck (the card ids are 0 to cards - 1).
+     * @param random - the source of randomness of the draws.
+     */
+    public Deck(int cards, Random random) {
+        this.random = random;
+        size = cards;
+        keys = new int[16];
+        values = new int[keys.length];
+        Arrays.fill(keys, FREE);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Takes a random card out of the deck.
+     *
+     * @return - the card drawn.
+     * @pre - the deck is not empty.
+     */
+    public int draw() {
+        int index = random.nextInt(size);
+        int card = cardAt(index);
+        size--;
+        if (index != size)
+            put(index, cardAt(size));
+        return card;
+    }
+
+    /**
+     * Returns a card to the deck.
+     *
+     * @param card - the card to return (not in the deck).
+     */
+    public void add(int card) {
+        put(size++, card);
+    }
+
+    /**
+     * Adds the cards in the deck to a collection (in O(size)).
+     *
+     * @param cards - the collection to add the cards to.
+     */
+    public void addTo(Collection<Integer> cards) {
+        for (int index = 0; index < size; index++)
+            cards.add(cardAt(index));
+    }
+
+    private int cardAt(int index) {
+        int mask = keys.length - 1;
+        for (int i = hash(index) & mask; keys[i] != FREE; i = (i + 1) & mask)
+            if (keys[i] == index)
+                return values[i];
+        return index;
+    }
+
+    private void put(int index, int card) {
+        int mask = keys.length - 1;
+        int i = hash(index) & mask;
+        for (; keys[i] != FREE; i = (i + 1) & mask)
+            if (keys[i] == index) {
+                values[i] = card;
+                return;
+            }
+        keys[i] = index;
+        values[i] = card;
+        if (++entries > keys.length * MAX_LOAD)
+            grow();
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[keys.length];
+        Arrays.fill(keys, FREE);
+        entries = 0;
+        for (int i = 0; i < oldKeys.length; i++)
+            if (oldKeys[i] != FREE)
+                put(oldKeys[i], oldValues[i]);
+    }
+
+    /**
+     * Spreads the indexes, which are mostly consecutive, over the table.
+     */
+    private static int hash(int index) {
+        int h = index * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
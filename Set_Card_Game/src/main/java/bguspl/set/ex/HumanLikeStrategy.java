@@ -0,0 +1,36 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+/**
+ * This class is a computer player that plays like a person: it takes a while to spot a set (config.humanLikeReactionMillis
+ * on average) and sometimes gets one of the cards wrong (with probability config.humanLikeErrorRate).
+ */
+public class HumanLikeStrategy extends PerfectStrategy {
+
+    public HumanLikeStrategy(Env env, Table table, int player) {
+        super(env, table, player);
+    }
+
+    @Override
+    public long thinkMillis() {
+        // the time to spot a set varies between half and one and a half times the average
+        long reactionMillis = env.config.humanLikeReactionMillis;
+        return reactionMillis / 2 + (long) (env.random.nextDouble() * reactionMillis);
+    }
+
+    @Override
+    protected boolean chooseTarget() {
+        if (!super.chooseTarget())
+            return false;
+        if (env.random.nextDouble() < env.config.humanLikeErrorRate) {
+            // mistake one of the cards for another one on the table
+            int slot = env.random.nextInt(env.config.tableSize);
+            for (int s : target)
+                if (s == slot)
+                    return true; // the same set after all
+            target[env.random.nextInt(target.length)] = slot;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,106 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class is a bounded queue of a player's key presses (slots), from the threads the keys are pressed on (e.g. the
+ * event dispatch thread and a network client's thread) to a single consumer (the player thread). A press on the same
+ * slot as the last press still waiting cancels it out instead of being queued, as it would only take back the token
+ * the other one places (or place back the token it takes).
+ *
+ * The producers take turns by a lock, which is only contended when a player's keys are pressed on several threads at
+ * once; the consumer takes no lock. A cell holds the slot pressed until either a producer cancels it (CANCELLED) or
+ * the consumer takes it (TAKEN): both swap the cell's value atomically, so exactly one of them gets the press.
+ *
+ * @inv head <= tail <= head + capacity
+ */
+public class KeyRing {
+
+    final int NONE = -1;
+    final int CANCELLED = -2;
+    final int TAKEN = -3;
+
+    /**
+     * The results of offer: the change in the number of presses waiting.
+     */
+    static final int QUEUED = 1;
+    static final int DROPPED = 0;
+    static final int COALESCED = -1;
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicIntegerArray cells;
+
+    /**
+     * The next position to be taken (only written by the consumer) and to be filled (only written by the producers).
+     */
+    private volatile long head;
+    private volatile long tail;
+
+    /**
+     * Makes the producers take turns.
+     */
+    private final ReentrantLock producerLock = new ReentrantLock();
+
+    /**
+     * @param capacity - the maximal number of presses waiting.
+     */
+    public KeyRing(int capacity) {
+        this.capacity = capacity;
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        cells = new AtomicIntegerArray(size);
+    }
+
+    /**
+     * Queues a press, or cancels the last press waiting if it is on the same slot (may be called from any thread).
+     *
+     * @param slot - the slot pressed.
+     * @return - QUEUED, COALESCED (neither press will be taken) or DROPPED (the queue is full).
+     */
+    public int offer(int slot) {
+        producerLock.lock();
+        try {
+            long position = tail;
+            long first = head;
+            for (long p = position - 1; p >= first; p--) { // the last press still waiting, if any
+                int value = cells.get((int) p & mask);
+                if (value == CANCELLED)
+                    continue;
+                if (value == slot && cells.compareAndSet((int) p & mask, slot, CANCELLED))
+                    return COALESCED;
+                break;
+            }
+            if (position - first >= capacity)
+                return DROPPED;
+            cells.set((int) position & mask, slot);
+            tail = position + 1;
+            return QUEUED;
+        } finally {
+            producerLock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next press (must only be called from the consumer thread).
+     *
+     * @return - the slot pressed, or NONE if no press is waiting.
+     */
+    public int poll() {
+        for (long position = head; position < tail; ) {
+            int value = cells.getAndSet((int) position & mask, TAKEN);
+            head = ++position;
+            if (value != CANCELLED)
+                return value;
+        }
+        return NONE;
+    }
+
+    /**
+     * @return - true iff no press is waiting (cancelled presses may still take room until the consumer skips them).
+     */
+    public boolean isEmpty() {
+        return head == tail;
+    }
+}
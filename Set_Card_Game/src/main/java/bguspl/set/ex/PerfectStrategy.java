@@ -0,0 +1,74 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+/**
+ * This class is a computer player that never misses: it looks for a legal set on the table, takes back its tokens
+ * that are not on the set and places tokens on the rest of the set.
+ */
+public class PerfectStrategy implements PlayerStrategy {
+
+    /**
+     * The game environment object.
+     */
+    protected final Env env;
+
+    /**
+     * Game entities.
+     */
+    protected final Table table;
+
+    /**
+     * The id of the player.
+     */
+    protected final int player;
+
+    /**
+     * The slots of the set to claim.
+     */
+    protected final int[] target;
+
+    /**
+     * The slots of the player's tokens.
+     */
+    private final int[] tokens;
+
+    public PerfectStrategy(Env env, Table table, int player) {
+        this.env = env;
+        this.table = table;
+        this.player = player;
+        target = new int[env.config.featureSize];
+        tokens = new int[env.config.featureSize];
+    }
+
+    @Override
+    public int plan(int[] presses) {
+        if (!chooseTarget())
+            return 0;
+        int count = 0;
+        int tokenCount = table.getTokens(player, tokens);
+        for (int i = 0; i < tokenCount; i++)
+            if (!contains(target, target.length, tokens[i]))
+                presses[count++] = tokens[i]; // pressing a token takes it back
+        for (int slot : target)
+            if (!contains(tokens, tokenCount, slot))
+                presses[count++] = slot;
+        return count;
+    }
+
+    /**
+     * Chooses the set to claim into target.
+     *
+     * @return - true iff a set was chosen.
+     */
+    protected boolean chooseTarget() {
+        return table.findSet(target);
+    }
+
+    private static boolean contains(int[] slots, int length, int slot) {
+        for (int i = 0; i < length; i++)
+            if (slots[i] == slot)
+                return true;
+        return false;
+    }
+}
@@ -1,11 +1,12 @@
 package bguspl.set.ex;
 
-import java.util.Random;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
+import bguspl.set.Clock;
 import bguspl.set.Env;
+import bguspl.set.Journal;
 
 /**
  * This class manages the players' threads and data
@@ -17,6 +18,8 @@ public class Player implements Runnable {
 
     final int EMPTY = -1;
     final int SECOND_IN_MILLIS = 1000;
+    final int IDLE_MILLIS = 100;
+    final long DONE = -1;
     /**
      * The game environment object.
      */
@@ -60,10 +63,37 @@ public class Player implements Runnable {
 
     private Dealer dealer;
 
-    public int activeTokens;
+    /**
+     * The key presses waiting for the player thread.
+     */
+    private final KeyRing keyspressed;
 
-    private BlockingQueue<Integer> keyspressed;
+    /**
+     * True iff the player thread is waiting for key presses (so a key press needs to wake it up).
+     */
+    private volatile boolean waiting;
 
+    /**
+     * The time (in nanos) of the last key press of each slot, for the key press to token latency.
+     */
+    private final long[] pressTimes;
+
+    /**
+     * The number of key presses of the computer player that were not handled yet.
+     */
+    private final AtomicInteger pendingPresses;
+
+    /**
+     * The computer player's strategy, the presses it planned, how many it planned and how many it pressed so far.
+     */
+    private final PlayerStrategy strategy;
+    private final int[] plannedPresses;
+    private int planned;
+    private int pressed;
+
+    /**
+     * The slots of the player's tokens when making a claim.
+     */
     public int[] set;
     /**
      * The class constructor.
@@ -76,10 +106,32 @@ public class Player implements Runnable {
      *               manually, via the keyboard).
      */
 
-    public boolean shouldPoint;
-    public boolean shouldPenalty;
+    public volatile boolean shouldPoint;
+    public volatile boolean shouldPenalty;
 
-    public Object lock;
+    /**
+     * True iff the player made a claim and the dealer did not handle it yet.
+     */
+    private volatile boolean awaitingVerdict;
+
+    /**
+     * True iff the player is frozen (after a point or a penalty). The freeze is counted down and ended by tasks
+     * scheduled on the game's clock (on the shared timer wheel, in real time), so that no thread sleeps through it.
+     */
+    private volatile boolean frozen;
+
+    /**
+     * The time the current freeze ends, and the timer of its next display update.
+     */
+    private volatile long freezeEnd;
+    private volatile Clock.Timeout freezeTimer;
+
+    /**
+     * Guards waiting for a change in the player's state: a key press, the dealer's verdict or the end of a freeze.
+     * A lock rather than the object's monitor, so that waiting does not pin the carrier of a virtual thread.
+     */
+    private final ReentrantLock lock;
+    private final Condition changed;
 
     public Player(Env env, Dealer dealer, Table table, int id, boolean human) {
         this.env = env;
@@ -87,15 +139,19 @@ public class Player implements Runnable {
         this.id = id;
         this.human = human;
         this.dealer = dealer;
-        this.activeTokens = 0;
-        keyspressed = new LinkedBlockingQueue<>(env.config.featureSize);
+        keyspressed = new KeyRing(2 * env.config.featureSize);
+        pendingPresses = new AtomicInteger();
+        pressTimes = new long[env.config.tableSize];
+        strategy = human ? null : PlayerStrategy.create(env, table, id);
+        plannedPresses = new int[2 * env.config.featureSize];
         set = new int[env.config.featureSize];
         for (int i = 0; i < set.length; i++)
             set[i] = EMPTY;
         terminate = false;
         shouldPoint = false;
         shouldPenalty = false;
-        lock = new Object();
+        lock = new ReentrantLock();
+        changed = lock.newCondition();
     }
 
     /**
@@ -108,17 +164,19 @@ public class Player implements Runnable {
         env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
         if (!human)
             createArtificialIntelligence();
-        else {
-            while (!terminate) {
-                // TODO implement main player loop
-                synchronized (this) {
-                    try {
-                        this.wait();
-                    } catch (InterruptedException e) {
-                    }
-                }
-                play();
+        while (!terminate) {
+            // TODO implement main player loop
+            lock.lock();
+            try {
+                waiting = true; // before checking the presses, see wakeUp
+                if (keyspressed.isEmpty())
+                    changed.await();
+            } catch (InterruptedException e) {
+            } finally {
+                waiting = false;
+                lock.unlock();
             }
+            play();
         }
         if (!human)
             try {
@@ -131,21 +189,30 @@ public class Player implements Runnable {
     /**
      * Creates an additional thread for an AI (computer) player. The main loop of
      * this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it
-     * is not full.
+     * key presses.
+     * The presses are planned by the player's strategy (see PlayerStrategy), once the presses planned before were all
+     * handled, and are paced by the ComputerKeyPressesPerSecond setting. The thread waits while the player is frozen
+     * or waiting for the dealer's verdict. The steps are the ones a simulated game takes too (see Simulation).
      */
     private void createArtificialIntelligence() {
         // note: this is a very, very smart AI (!)
-        aiThread = new Thread(() -> {
+        aiThread = env.newThread(() -> {
             env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-            Random rnd = new Random();
-            while (!terminate) {
-                // TODO implement player key press simulator
-                if (dealer.cardsPlaced) {
-                    int pressSlot = rnd.nextInt(env.config.tableSize);
-                    this.keyspressed.add(pressSlot);
-                    play();
+            try {
+                while (!terminate) {
+                    // TODO implement player key press simulator
+                    lock.lock();
+                    try {
+                        while (!terminate && !readyToPlan())
+                            changed.await();
+                    } finally {
+                        lock.unlock();
+                    }
+                    env.clock.sleep(think());
+                    for (long delay = plan(); delay != DONE && !terminate; delay = pressNext())
+                        env.clock.sleep(delay);
                 }
+            } catch (InterruptedException ignored) {
             }
             env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
         }, "computer-" + id);
@@ -158,95 +225,173 @@ public class Player implements Runnable {
     public void terminate() {
         // TODO implement
         terminate = true;
-        if (!human)
+        Clock.Timeout timer = freezeTimer;
+        if (timer != null)
+            timer.cancel();
+        if (aiThread != null)
             aiThread.interrupt();
     }
 
+    /**
+     * Checks if key presses should be handled now, i.e. the player is neither waiting for the dealer's verdict nor
+     * about to be (or being) frozen.
+     */
+    private boolean acceptsInput() {
+        return !awaitingVerdict && !shouldPoint && !shouldPenalty && !frozen;
+    }
+
     private void play() {
         tokenHandling();
-        if (shouldPoint) {
-            point();
-            shouldPoint = false;
-        } else if (shouldPenalty) {
-            penalty();
-            shouldPenalty = false;
+        awaitVerdict();
+        handleVerdict();
+    }
+
+    /**
+     * @return - true iff the computer player may plan its next presses: it accepts input, and the presses it planned
+     * before were all handled.
+     */
+    boolean readyToPlan() {
+        return acceptsInput() && pendingPresses.get() == 0;
+    }
+
+    /**
+     * @return - the time (in millis) the computer player thinks before planning its next presses.
+     */
+    long think() {
+        return strategy.thinkMillis();
+    }
+
+    /**
+     * Plans the computer player's next presses.
+     *
+     * @return - the time (in millis) until its first press (see pressNext), or until it may think again if it planned
+     * none.
+     */
+    long plan() {
+        planned = strategy.plan(plannedPresses);
+        pressed = 0;
+        return planned == 0 ? IDLE_MILLIS : env.config.computerKeyPressMillis;
+    }
+
+    /**
+     * Presses the computer player's next planned key (queued for tokenHandling), unless it stopped accepting input.
+     *
+     * @return - the time (in millis) until its next press, or DONE if there is none.
+     */
+    long pressNext() {
+        if (pressed == planned || !acceptsInput())
+            return DONE;
+        pendingPresses.incrementAndGet(); // before the player thread may handle it
+        pendingPresses.addAndGet(queue(plannedPresses[pressed++]) - 1);
+        return pressed < planned ? env.config.computerKeyPressMillis : DONE;
+    }
+
+    /**
+     * Wakes up the threads waiting for a change in the player's state.
+     */
+    private void signalChanged() {
+        lock.lock();
+        try {
+            changed.signalAll();
+        } finally {
+            lock.unlock();
         }
     }
 
     /**
-     * This method is called when a key is pressed.
+     * Wakes up the player thread if it is waiting for key presses.
+     */
+    private void wakeUp() {
+        if (waiting) // read after the press was queued, so either the player thread sees it or this sees the wait
+            signalChanged();
+    }
+
+    /**
+     * This method is called when a key is pressed (on any thread, e.g. the event dispatch thread or a network
+     * client's thread).
      *
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {
         // TODO implement
-        if (dealer.cardsPlaced && !shouldPenalty && !shouldPoint) {
-            try {
-                keyspressed.put(slot);
-            } catch (InterruptedException e) {
-            }
-        }
-        synchronized (this) {
-            this.notify();
+        if (!dealer.cardsPlaced || !acceptsInput())
+            return;
+        queue(slot);
+    }
+
+    /**
+     * Queues a key press for the player thread, unless its slot has no card, or it cancels out the key press before
+     * it (on the same slot).
+     *
+     * @return - the change in the number of key presses waiting (see KeyRing.offer).
+     */
+    private int queue(int slot) {
+        if (table.slotToCard[slot] == EMPTY) {
+            env.metrics.keyPressesEmptySlot.increment();
+            return KeyRing.DROPPED;
         }
+        pressTimes[slot] = System.nanoTime(); // published to the player thread by the queue
+        int queued = keyspressed.offer(slot);
+        if (queued == KeyRing.QUEUED) {
+            env.metrics.keyPresses.increment();
+            wakeUp();
+        } else if (queued == KeyRing.COALESCED)
+            env.metrics.keyPressesCoalesced.increment();
+        else
+            env.metrics.keyPressesDropped.increment();
+        return queued;
     }
 
     public void tokenHandling() {
-        synchronized (keyspressed) {
-            if (!keyspressed.isEmpty()) {
-                int slot = keyspressed.remove();
-                if (table.slotToCard[slot] != null) {
-                    if (table.isTokenPlaced(id, slot)) {
-                        removeToken(slot);
-                    } else if (activeTokens < env.config.featureSize) {
-                        addToken(slot);
-                        if (activeTokens == env.config.featureSize) {
-                            synchronized (dealer.waitingPlayers) {
-                                dealer.addWaiting(id);
-                            }
-                            synchronized (dealer) {
-                                dealer.notify();
-                            }
-                            synchronized (this) {
-                            try {
-                                this.wait();
-                            } catch (InterruptedException e) {}
-                            }
-                        }
-                    }
-                }
+        int slot = keyspressed.poll(); // the player thread is the only one taking key presses
+        if (slot == keyspressed.NONE)
+            return;
+        boolean claim = pressKey(slot);
+        env.metrics.keyToToken.recordSince(pressTimes[slot]);
+        if (claim) {
+            awaitingVerdict = true; // before the dealer may handle the claim, see claimHandled
+            if (!dealer.claimSet(id, set)) {
+                awaitingVerdict = false;
+                env.logger.warning("claim of player " + (id + 1) + " was dropped");
             }
         }
+        if (!human && pendingPresses.decrementAndGet() == 0)
+            signalChanged(); // the computer player may plan its next presses (once it accepts input)
     }
 
-    public void removeToken(int slot) {
-        synchronized (table.slots[slot]) {
-            boolean isRemoved = false;
-            for (int i = 0; i < set.length; i++)
-                if (set[i] == slot) {
-                    set[i] = EMPTY;
-                    isRemoved = true;
-                    break;
-                }
-            if (isRemoved) {
-                activeTokens--;
-                table.removeToken(id, slot);
-            }
+    /**
+     * Waits until the dealer handled the player's claim, if it made one.
+     */
+    private void awaitVerdict() {
+        lock.lock();
+        try {
+            while (awaitingVerdict && !terminate)
+                changed.await();
+        } catch (InterruptedException e) {
+        } finally {
+            lock.unlock();
         }
     }
 
-    public void addToken(int slot) {
-        synchronized (table.slots[slot]) {
-            if (table.slotToCard[slot] != null) {
-                for (int i = 0; i < set.length; i++)
-                    if (set[i] == EMPTY) {
-                        set[i] = slot;
-                        break;
-                    }
-                activeTokens++;
-                table.placeToken(id, slot);
-            }
-        }
+    /**
+     * Scores a point or takes a penalty, as the dealer's verdict on the player's claim says (if it gave one).
+     */
+    void handleVerdict() {
+        if (shouldPoint)
+            point();
+        else if (shouldPenalty)
+            penalty();
+    }
+
+    /**
+     * Places or removes a token of the player on a slot, as pressing the slot's key does.
+     *
+     * @param slot - the slot pressed.
+     * @return - true iff the player has just placed its last token (i.e. should claim the set in the set array).
+     */
+    boolean pressKey(int slot) {
+        return !table.removeToken(id, slot) && table.countTokens(id) < env.config.featureSize
+                && table.placeToken(id, slot) && table.getTokens(id, set) == env.config.featureSize;
     }
 
     /**
@@ -257,16 +402,9 @@ public class Player implements Runnable {
      */
     public void point() {
         // TODO implement
-        env.ui.setFreeze(id, env.config.pointFreezeMillis);
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
-        env.ui.setScore(id, ++score);
-
-        try {
-            Thread.sleep(env.config.pointFreezeMillis);
-        } catch (InterruptedException e) {
-        }
-
-        env.ui.setFreeze(id, 0);
+        scorePoint();
+        freeze(env.config.pointFreezeMillis);
     }
 
     /**
@@ -274,15 +412,66 @@ public class Player implements Runnable {
      */
     public void penalty() {
         // TODO implement
-        for (long i = env.config.penaltyFreezeMillis; i > 0; i -= SECOND_IN_MILLIS) {
+        freeze(env.config.penaltyFreezeMillis);
+    }
 
-            env.ui.setFreeze(id, i);
-            try {
-                Thread.sleep(SECOND_IN_MILLIS);
-            } catch (InterruptedException e) {
-            }
+    /**
+     * Freezes the player (taking the place of the point or penalty that caused it) until the given time passes.
+     */
+    private void freeze(long millis) {
+        frozen = true; // before the verdict is cleared, so that the player never looks free meanwhile
+        shouldPoint = false;
+        shouldPenalty = false;
+        freezeEnd = env.clock.currentTimeMillis() + millis;
+        updateFreeze();
+    }
+
+    /**
+     * Shows the remaining time of the freeze and schedules the next update for when the seconds shown change, or
+     * ends the freeze if it is over.
+     */
+    private void updateFreeze() {
+        if (terminate)
+            return;
+        long remaining = freezeEnd - env.clock.currentTimeMillis();
+        if (remaining <= 0) {
+            setFreeze(0);
+            frozen = false;
+            signalChanged(); // the freeze is over
+            return;
+        }
+        setFreeze((remaining + SECOND_IN_MILLIS - 1) / SECOND_IN_MILLIS * SECOND_IN_MILLIS); // the seconds started
+        freezeTimer = env.clock.schedule(this::updateFreeze, (remaining - 1) % SECOND_IN_MILLIS + 1);
+    }
+
+    /**
+     * Called by the dealer when it is done with the player's claim: either gave its verdict (by setting shouldPoint
+     * or shouldPenalty) or discarded it.
+     */
+    public void claimHandled() {
+        lock.lock();
+        try {
+            awaitingVerdict = false;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
         }
-        env.ui.setFreeze(id, 0);
+    }
+
+    /**
+     * Increases the player's score by 1, and shows it.
+     */
+    void scorePoint() {
+        env.ui.setScore(id, ++score);
+        env.journal.record(Journal.Event.SCORE, id, -1, score);
+    }
+
+    /**
+     * Shows the remaining time of the player's freeze (0 when it is over), and records it.
+     */
+    void setFreeze(long millis) {
+        env.ui.setFreeze(id, millis);
+        env.journal.record(Journal.Event.FREEZE, id, -1, (int) millis);
     }
 
     public int score() {
@@ -0,0 +1,50 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+/**
+ * This interface is the "mind" of a computer player: it decides which keys the player presses.
+ * The player's AI thread asks the strategy for the next presses whenever the player may act and the presses planned
+ * before were all handled, and presses them at the configured pace.
+ */
+public interface PlayerStrategy {
+
+    /**
+     * @return - the number of milliseconds it takes the player to come up with its next presses (before plan is
+     *           called).
+     */
+    default long thinkMillis() {
+        return 0;
+    }
+
+    /**
+     * Plans the next key presses of the player.
+     *
+     * @param presses - the array to write the slots to press into, in order (of length 2 * config.featureSize).
+     * @return - the number of presses planned (0 if there is nothing to press right now).
+     */
+    int plan(int[] presses);
+
+    /**
+     * Creates the strategy configured for a computer player (see config.playerStrategies).
+     *
+     * @param env    - the environment object.
+     * @param table  - the table object.
+     * @param player - the id of the player.
+     * @return - the strategy of the player (a random one, if the configured name is unknown).
+     */
+    static PlayerStrategy create(Env env, Table table, int player) {
+        String name = env.config.playerStrategies[player];
+        switch (name) {
+            case "perfect":
+                return new PerfectStrategy(env, table, player);
+            case "human-like":
+                return new HumanLikeStrategy(env, table, player);
+            case "random":
+                return new RandomStrategy(env);
+            default:
+                env.logger.warning("unknown strategy " + name + " for player " + (player + 1) + ", using random.");
+                return new RandomStrategy(env);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+/**
+ * This class is the original computer player: it presses random slots, one at a time.
+ */
+public class RandomStrategy implements PlayerStrategy {
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    public RandomStrategy(Env env) {
+        this.env = env;
+    }
+
+    @Override
+    public int plan(int[] presses) {
+        presses[0] = env.random.nextInt(env.config.tableSize);
+        return 1;
+    }
+}
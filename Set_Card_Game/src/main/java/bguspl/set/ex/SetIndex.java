@@ -0,0 +1,127 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Arrays;
+
+/**
+ * This class keeps count of the legal sets among a changing collection of cards.
+ * Adding or removing a card only looks at the sets that contain that card, so the count is always up to date and
+ * reading it is O(1).
+ *
+ * @inv cards[position[c]] == c iff card c is in the collection
+ * @inv sets == the number of legal sets among cards[0 .. size - 1]
+ */
+public class SetIndex {
+
+    final int ABSENT = -1;
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The cards in the collection (in no particular order).
+     */
+    private final int[] cards;
+
+    /**
+     * Mapping between a card and its position in cards (ABSENT if not in the collection).
+     */
+    private final int[] position;
+
+    private int size;
+
+    /**
+     * The number of legal sets among the cards in the collection.
+     */
+    private long sets;
+
+    /**
+     * A card being added or removed, followed by the cards chosen to go with it while counting.
+     */
+    private final int[] partialSet;
+
+    public SetIndex(Env env) {
+        this.env = env;
+        cards = new int[env.config.deckSize];
+        position = new int[env.config.deckSize];
+        Arrays.fill(position, ABSENT);
+        partialSet = new int[Math.max(1, env.config.featureSize - 1)];
+    }
+
+    /**
+     * Adds a card to the collection and counts the sets it forms with the cards already in it.
+     *
+     * @param card - the card id to add.
+     */
+    public synchronized void add(int card) {
+        if (position[card] != ABSENT)
+            return;
+        sets += countSetsWith(card);
+        cards[size] = card;
+        position[card] = size++;
+    }
+
+    /**
+     * Removes a card from the collection and discounts the sets it formed with the remaining cards.
+     *
+     * @param card - the card id to remove.
+     */
+    public synchronized void remove(int card) {
+        int index = position[card];
+        if (index == ABSENT)
+            return;
+        cards[index] = cards[--size];
+        position[cards[index]] = index;
+        position[card] = ABSENT;
+        sets -= countSetsWith(card);
+    }
+
+    public synchronized boolean contains(int card) {
+        return position[card] != ABSENT;
+    }
+
+    public synchronized long countSets() {
+        return sets;
+    }
+
+    public synchronized boolean hasSets() {
+        return sets > 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Counts the legal sets made of a card (which is not in the collection) and cards from the collection.
+     */
+    private long countSetsWith(int card) {
+        int setSize = env.config.featureSize;
+        if (setSize < 2)
+            return 0;
+        if (setSize == 2)
+            return size; // any two different cards form a legal set
+        partialSet[0] = card;
+        return countSetsWith(1, 0);
+    }
+
+    /**
+     * Chooses the rest of the partial set in increasing positions; the last card of a set is not chosen but computed,
+     * and is counted only if it comes after all the chosen ones so that each set is counted once.
+     */
+    private long countSetsWith(int chosen, int start) {
+        if (chosen == partialSet.length) {
+            int completion = env.util.completeSet(partialSet);
+            return completion >= 0 && position[completion] >= start ? 1 : 0;
+        }
+        long count = 0;
+        for (int i = start; i < size; ++i) {
+            partialSet[chosen] = cards[i];
+            count += countSetsWith(chosen + 1, i + 1);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,192 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterface;
+import bguspl.set.UserInterfaceNone;
+import bguspl.set.UtilImpl;
+import bguspl.set.VirtualClock;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * This class runs a game of computer players as a discrete-event simulation: a single thread plays the dealer and all
+ * the players, against a virtual clock that jumps straight to the time of the next event. A game takes as long as
+ * its computation does (no sleeping, no ui), and the same seed always gives the same game.
+ *
+ * The dealer, the table and the players are the same objects a real game uses, and take the same steps: a player
+ * thinks, plans and presses its keys (see Player.plan and Player.pressNext), handles them and the dealer's verdict
+ * (see Player.tokenHandling and Player.handleVerdict), and is frozen on the game's clock. Only the threads are replaced
+ * by the event loop below. Whatever sleeps on the way (e.g. the table delay while the dealer deals) moves the virtual
+ * time forward, as if the sleeping thread held everyone else up meanwhile.
+ */
+public class Simulation {
+
+    /**
+     * The states of a player: waiting until it may plan, thinking, or pressing the keys it planned.
+     */
+    final int WAITING = 0;
+    final int THINKING = 1;
+    final int PRESSING = 2;
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    private final VirtualClock clock;
+
+    /**
+     * Game entities.
+     */
+    private final Table table;
+    private final Dealer dealer;
+    private final Player[] players;
+
+    /**
+     * The state of each player, and the time of its next action.
+     */
+    private final int[] states;
+    private final long[] actionTime;
+
+    /**
+     * The results of a simulated game.
+     */
+    public static class Result {
+        public final int[] scores;
+        public final int[] winners;
+        public final long virtualMillis;
+
+        Result(int[] scores, long virtualMillis) {
+            this.scores = scores;
+            int max = Arrays.stream(scores).max().orElse(0);
+            winners = IntStream.range(0, scores.length).filter(id -> scores[id] == max).toArray();
+            this.virtualMillis = virtualMillis;
+        }
+    }
+
+    /**
+     * @param logger - the logger of the game.
+     * @param config - the configuration of the game (all the players are computer players).
+     * @param seed   - the seed of the game's random choices.
+     */
+    public Simulation(Logger logger, Config config, long seed) {
+        this(logger, config, seed, new UserInterfaceNone());
+    }
+
+    /**
+     * @param ui - the user interface the game is shown on.
+     */
+    Simulation(Logger logger, Config config, long seed, UserInterface ui) {
+        clock = new VirtualClock();
+        env = new Env(logger, config, ui, new UtilImpl(config), clock, new Random(seed));
+        table = new Table(env);
+        players = new Player[config.players];
+        dealer = new Dealer(env, table, players);
+        states = new int[config.players];
+        actionTime = new long[config.players];
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+    }
+
+    /**
+     * Plays the game to its end.
+     *
+     * @return - the results of the game.
+     */
+    public Result run() {
+        dealer.start();
+        while (!dealer.isTerminated()) {
+            if (dealer.step())
+                continue; // the dealer's due events come first
+            if (clock.runDueTasks()) { // e.g. the end of a freeze, after which a waiting player may plan again
+                for (int i = 0; i < players.length; i++)
+                    if (states[i] == WAITING)
+                        actionTime[i] = Math.min(actionTime[i], clock.currentTimeMillis());
+                continue;
+            }
+
+            int next = -1;
+            long time = Math.min(dealer.nextEventTime(), clock.nextTaskTime());
+            for (int i = 0; i < players.length; i++)
+                if (actionTime[i] < time) {
+                    time = actionTime[i];
+                    next = i;
+                }
+            if (time == DealerScheduler.NEVER)
+                break; // nothing will ever happen
+            clock.advanceTo(time);
+            if (next >= 0)
+                act(next);
+        }
+        dealer.finish();
+        return new Result(Arrays.stream(players).mapToInt(Player::score).toArray(), clock.currentTimeMillis());
+    }
+
+    /**
+     * Does the next action of a player, as its threads would: starts thinking once it may plan, plans its next presses,
+     * or presses its next key and handles it right away (along with the dealer's verdict, if it claimed a set).
+     */
+    private void act(int id) {
+        Player player = players[id];
+        long delay;
+        if (states[id] == WAITING) {
+            if (!player.readyToPlan()) {
+                actionTime[id] = DealerScheduler.NEVER; // until its freeze ends (see run)
+                return;
+            }
+            states[id] = THINKING;
+            delay = player.think();
+        } else if (states[id] == THINKING) {
+            states[id] = PRESSING;
+            delay = player.plan();
+        } else {
+            delay = player.pressNext();
+            player.tokenHandling();
+            while (dealer.step()) ; // the claim is handled right away, as nothing else happens meanwhile
+            player.handleVerdict();
+            if (delay == player.DONE) {
+                states[id] = WAITING;
+                delay = 0;
+            }
+        }
+        actionTime[id] = clock.currentTimeMillis() + delay;
+    }
+
+    /**
+     * Simulates games with the configuration in config.properties (all the players are computer players) and prints
+     * their results.
+     *
+     * @param args - the number of games (config.serverGames if not given) and the seed of the first game
+     *             (config.randomSeed, or 1 if not given; game i is seeded by seed + i).
+     */
+    public static void main(String[] args) {
+
+        Logger logger = Logger.getLogger("SetGameSimulationLogger");
+        logger.setUseParentHandlers(false);
+        Config config = new Config(logger, "config.properties");
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : config.serverGames;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : config.randomSeed != 0 ? config.randomSeed : 1;
+
+        int[] wins = new int[config.players];
+        long points = 0;
+        long virtualMillis = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < games; i++) {
+            Result result = new Simulation(logger, config, seed + i).run();
+            for (int winner : result.winners)
+                wins[winner]++;
+            points += Arrays.stream(result.scores).sum();
+            virtualMillis += result.virtualMillis;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%d games in %.2f s (%.0f games/s), %.1f points and %.1f virtual seconds per game%n",
+                games, seconds, games / seconds, (double) points / games, virtualMillis / 1000.0 / games);
+        for (int i = 0; i < config.players; i++)
+            System.out.println(config.playerNames[i] + " (" + config.playerStrategies[i] + "): " + wins[i] + " wins");
+    }
+}
@@ -1,12 +1,13 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.Journal;
 
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 /**
@@ -16,52 +17,77 @@ import java.util.stream.Collectors;
  */
 public class Table {
 
+    final int EMPTY = -1;
+    final int NONE = -1;
+
     /**
      * The game environment object.
      */
     private final Env env;
 
     /**
-     * Mapping between a slot and the card placed in it (null if none).
+     * Mapping between a slot and the card placed in it (EMPTY if none).
+     */
+    protected final int[] slotToCard; // card per slot (if any)
+
+    /**
+     * Mapping between a card and the slot it is in (EMPTY if none).
+     */
+    protected final int[] cardToSlot; // slot per card (if any)
+
+    /**
+     * The tokens of each player as a bit mask of slots: bit s of word player * slotWords + s / 64 is set iff the
+     * player has a token on slot s. Different slots of a player change concurrently, hence the atomic words.
      */
-    protected final Integer[] slotToCard; // card per slot (if any)
+    private final AtomicLongArray playerTokens;
+    private final int slotWords;
 
     /**
-     * Mapping between a card and the slot it is in (null if none).
+     * The players holding tokens on each slot as a bit mask of players: bit p of word slot * playerWords + p / 64 is
+     * set iff player p has a token on the slot. Only changes while holding the slot's lock.
      */
-    protected final Integer[] cardToSlot; // slot per card (if any)
+    private final long[] slotTokens;
+    private final int playerWords;
 
-    protected final Boolean[][] tokenToSlot;
+    /**
+     * The locks of the slots: a card and the tokens on a slot only change while holding the slot's lock, so
+     * operations on different slots never wait for each other. A card is in a single slot at a time, so the lock of
+     * that slot also guards the card's entry in cardToSlot. Locks rather than monitors, so that a virtual thread
+     * blocking while holding one (e.g. on the ui) does not pin its carrier.
+     */
+    public final ReentrantLock[] slots;
 
-    public final Object[] slots;
+    /**
+     * The count of legal sets among the cards on the table, kept up to date on every card placed or removed.
+     */
+    private final SetIndex setIndex;
 
     /**
      * Constructor for testing.
      *
      * @param env        - the game environment objects.
-     * @param slotToCard - mapping between a slot and the card placed in it (null if
+     * @param slotToCard - mapping between a slot and the card placed in it (EMPTY if
      *                   none).
-     * @param cardToSlot - mapping between a card and the slot it is in (null if
+     * @param cardToSlot - mapping between a card and the slot it is in (EMPTY if
      *                   none).
      */
 
-    private Semaphore tableSemaphore;
-
-    public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
+    public Table(Env env, int[] slotToCard, int[] cardToSlot) {
 
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
-        tokenToSlot = new Boolean[env.config.players][env.config.tableSize];
-        for (int i = 0; i < tokenToSlot.length; i++) {
-            for (int j = 0; j < tokenToSlot[i].length; j++) {
-                tokenToSlot[i][j] = false;
-            }
-        }
-        this.slots = new Object[env.config.tableSize];
+        slotWords = wordsFor(env.config.tableSize);
+        playerWords = wordsFor(env.config.players);
+        playerTokens = new AtomicLongArray(env.config.players * slotWords);
+        slotTokens = new long[env.config.tableSize * playerWords];
+        this.slots = new ReentrantLock[env.config.tableSize];
         for (int i = 0; i < slots.length; i++)
-            slots[i] = new Object();
-        tableSemaphore = new Semaphore(1, true);
+            slots[i] = new ReentrantLock();
+        setIndex = new SetIndex(env);
+        for (int card : slotToCard)
+            if (card != EMPTY)
+                setIndex.add(card);
     }
 
     /**
@@ -71,7 +97,17 @@ public class Table {
      */
     public Table(Env env) {
 
-        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
+        this(env, emptyArray(env.config.tableSize), emptyArray(env.config.deckSize));
+    }
+
+    private static int[] emptyArray(int length) {
+        int[] array = new int[length];
+        Arrays.fill(array, -1);
+        return array;
+    }
+
+    private static int wordsFor(int bits) {
+        return (bits + Long.SIZE - 1) / Long.SIZE;
     }
 
     /**
@@ -79,7 +115,7 @@ public class Table {
      * table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
+        List<Integer> deck = Arrays.stream(slotToCard).filter(card -> card != EMPTY).boxed().collect(Collectors.toList());
         env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
             List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted()
@@ -90,6 +126,27 @@ public class Table {
         });
     }
 
+    /**
+     * Finds a legal set among the cards on the table (for computer players; the table may change meanwhile).
+     *
+     * @param setSlots - the array to write the slots of the set into.
+     * @return - true iff a set was found.
+     */
+    public boolean findSet(int[] setSlots) {
+        long start = System.nanoTime();
+        List<Integer> deck = Arrays.stream(slotToCard).filter(card -> card != EMPTY).boxed().collect(Collectors.toList());
+        List<int[]> sets = env.util.findSets(deck, 1);
+        env.metrics.findSet.recordSince(start);
+        if (sets.isEmpty())
+            return false;
+        for (int i = 0; i < setSlots.length; i++) {
+            setSlots[i] = cardToSlot[sets.get(0)[i]];
+            if (setSlots[i] == EMPTY)
+                return false; // the card was just removed
+        }
+        return true;
+    }
+
     /**
      * Count the number of cards currently on the table.
      *
@@ -97,12 +154,30 @@ public class Table {
      */
     public int countCards() {
         int cards = 0;
-        for (Integer card : slotToCard)
-            if (card != null)
+        for (int card : slotToCard)
+            if (card != EMPTY)
                 ++cards;
         return cards;
     }
 
+    /**
+     * Checks if there is a legal set among the cards on the table (without searching for one).
+     *
+     * @return - true iff at least one legal set is on the table.
+     */
+    public boolean hasSets() {
+        return setIndex.hasSets();
+    }
+
+    /**
+     * Count the number of legal sets among the cards currently on the table.
+     *
+     * @return - the number of legal sets on the table.
+     */
+    public long countSets() {
+        return setIndex.countSets();
+    }
+
     /**
      * Places a card on the table in a grid slot.
      * 
@@ -112,65 +187,184 @@ public class Table {
      * @post - the card placed is on the table, in the assigned slot.
      */
     public void placeCard(int card, int slot) {
-        synchronized (slots[slot]) {
-            try {
-                tableSemaphore.acquire();
-            } catch (InterruptedException e) {
-            }
-            try {
-                Thread.sleep(env.config.tableDelayMillis);
-            } catch (InterruptedException ignored) {
-            }
+        try {
+            env.clock.sleep(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {
+        }
 
+        long start = System.nanoTime();
+        slots[slot].lock();
+        try {
             cardToSlot[card] = slot;
             slotToCard[slot] = card;
+            setIndex.add(card);
 
             // TODO implement
 
             env.ui.placeCard(card, slot);
-            tableSemaphore.release();
+            env.journal.record(Journal.Event.CARD_PLACED, NONE, slot, card);
+        } finally {
+            slots[slot].unlock();
+            env.metrics.tableCardOp.recordSince(start);
         }
     }
 
     /**
-     * Removes a card from a grid slot on the table.
+     * Removes a card from a grid slot on the table, together with all the tokens on it.
      * 
      * @param slot - the slot from which to remove the card.
+     *
+     * @post - there is no card and no token on the slot.
      */
     public void removeCard(int slot) {
-        synchronized (slots[slot]) {
-            try {
-                tableSemaphore.acquire();
-            } catch (InterruptedException e) {
-            }
-            try {
-                Thread.sleep(env.config.tableDelayMillis);
-            } catch (InterruptedException ignored) {
-            }
+        try {
+            env.clock.sleep(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {
+        }
 
+        long start = System.nanoTime();
+        slots[slot].lock();
+        try {
             // TODO implement
-            cardToSlot[slotToCard[slot]] = null;
-            slotToCard[slot] = null;
+            removeTokens(slot);
+            int card = slotToCard[slot];
+            setIndex.remove(card);
+            cardToSlot[card] = EMPTY;
+            slotToCard[slot] = EMPTY;
             env.ui.removeCard(slot);
-            tableSemaphore.release();
+            env.journal.record(Journal.Event.CARD_REMOVED, NONE, slot, card);
+        } finally {
+            slots[slot].unlock();
+            env.metrics.tableCardOp.recordSince(start);
         }
     }
 
+    /**
+     * Places cards on the table in grid slots, all in a single critical section and with a single delay (rather than a
+     * delay per card) before it.
+     *
+     * @param cards - the card ids to place.
+     * @param slots - the slots in which the cards should be placed, cards[i] in slots[i].
+     *
+     * @post - the cards placed are on the table, in the assigned slots.
+     */
+    public void placeCards(int[] cards, int[] slots) {
+        if (slots.length == 0)
+            return;
+        try {
+            env.clock.sleep(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {
+        }
+
+        long start = System.nanoTime();
+        int[] locked = lockAll(slots, slots.length);
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                cardToSlot[cards[i]] = slots[i];
+                slotToCard[slots[i]] = cards[i];
+                setIndex.add(cards[i]);
+            }
+            env.ui.placeCards(cards, slots);
+            for (int i = 0; i < slots.length; i++)
+                env.journal.record(Journal.Event.CARD_PLACED, NONE, slots[i], cards[i]);
+        } finally {
+            unlockAll(locked);
+            env.metrics.tableCardOp.recordSince(start);
+        }
+    }
+
+    /**
+     * Removes the cards from grid slots on the table, together with all the tokens on them, all in a single critical
+     * section and with a single delay before it.
+     *
+     * @param slots - the slots from which to remove the cards (empty slots are skipped).
+     *
+     * @post - there is no card and no token on the slots.
+     */
+    public void removeCards(int[] slots) {
+        removeCards(slots, slots.length);
+    }
+
+    /**
+     * Removes the cards from the first grid slots of an array (see removeCards(int[])).
+     *
+     * @param slots  - the slots from which to remove the cards (empty slots are skipped).
+     * @param length - the number of slots to remove the cards from (the first ones of the array).
+     */
+    public void removeCards(int[] slots, int length) {
+        if (length == 0)
+            return;
+        try {
+            env.clock.sleep(env.config.tableDelayMillis);
+        } catch (InterruptedException ignored) {
+        }
+
+        long start = System.nanoTime();
+        int[] locked = lockAll(slots, length);
+        try {
+            int[] removed = new int[length];
+            int count = 0;
+            for (int i = 0; i < length; i++) {
+                int slot = slots[i];
+                int card = slotToCard[slot];
+                if (card == EMPTY)
+                    continue;
+                removeTokens(slot);
+                setIndex.remove(card);
+                cardToSlot[card] = EMPTY;
+                slotToCard[slot] = EMPTY;
+                removed[count++] = slot;
+                env.journal.record(Journal.Event.CARD_REMOVED, NONE, slot, card);
+            }
+            if (count > 0)
+                env.ui.removeCards(count == removed.length ? removed : Arrays.copyOf(removed, count));
+        } finally {
+            unlockAll(locked);
+            env.metrics.tableCardOp.recordSince(start);
+        }
+    }
+
+    /**
+     * Locks the locks of slots in increasing order, so that two threads locking overlapping slots cannot deadlock.
+     *
+     * @return - the slots locked, in the order they were locked.
+     */
+    private int[] lockAll(int[] slots, int length) {
+        int[] sorted = Arrays.copyOf(slots, length);
+        Arrays.sort(sorted);
+        for (int slot : sorted)
+            this.slots[slot].lock();
+        return sorted;
+    }
+
+    private void unlockAll(int[] sorted) {
+        for (int i = sorted.length - 1; i >= 0; i--)
+            this.slots[sorted[i]].unlock();
+    }
+
     /**
      * Places a player token on a grid slot.
      * 
      * @param player - the player the token belongs to.
      * @param slot   - the slot on which to place the token.
+     * @return - true iff a token was placed (i.e. there is a card on the slot and no token of the player).
      */
-    public void placeToken(int player, int slot) {
+    public boolean placeToken(int player, int slot) {
         // TODO implement
+        long start = System.nanoTime();
+        slots[slot].lock();
         try {
-            tableSemaphore.acquire();
-        } catch (InterruptedException e) {
+            if (slotToCard[slot] == EMPTY || isTokenPlaced(player, slot))
+                return false;
+            setBit(player, slot);
+            slotTokens[slot * playerWords + player / Long.SIZE] |= 1L << player;
+            env.ui.placeToken(player, slot);
+            env.journal.record(Journal.Event.TOKEN_PLACED, player, slot, 0);
+            return true;
+        } finally {
+            slots[slot].unlock();
+            env.metrics.tableTokenOp.recordSince(start);
         }
-        env.ui.placeToken(player, slot);
-        tokenToSlot[player][slot] = true;
-        tableSemaphore.release();
     }
 
     /**
@@ -182,14 +376,45 @@ public class Table {
      */
     public boolean removeToken(int player, int slot) {
         // TODO implement
+        long start = System.nanoTime();
+        slots[slot].lock();
         try {
-            tableSemaphore.acquire();
-        } catch (InterruptedException e) {
+            if (!isTokenPlaced(player, slot))
+                return false;
+            clearBit(player, slot);
+            slotTokens[slot * playerWords + player / Long.SIZE] &= ~(1L << player);
+            env.ui.removeToken(player, slot);
+            env.journal.record(Journal.Event.TOKEN_REMOVED, player, slot, 0);
+            return true;
+        } finally {
+            slots[slot].unlock();
+            env.metrics.tableTokenOp.recordSince(start);
+        }
+    }
+
+    /**
+     * Removes the tokens of all the players from a grid slot.
+     *
+     * @param slot - the slot from which to remove the tokens.
+     */
+    public void removeTokens(int slot) {
+        slots[slot].lock();
+        try {
+            boolean removed = false;
+            for (int word = 0; word < playerWords; word++) {
+                long players = slotTokens[slot * playerWords + word];
+                slotTokens[slot * playerWords + word] = 0;
+                removed |= players != 0;
+                for (; players != 0; players &= players - 1)
+                    clearBit(word * Long.SIZE + Long.numberOfTrailingZeros(players), slot);
+            }
+            if (removed) {
+                env.ui.removeTokens(slot);
+                env.journal.record(Journal.Event.TOKENS_REMOVED, NONE, slot, 0);
+            }
+        } finally {
+            slots[slot].unlock();
         }
-        env.ui.removeToken(player, slot);
-        tokenToSlot[player][slot] = false;
-        tableSemaphore.release();
-        return false;
     }
 
     /*
@@ -198,15 +423,60 @@ public class Table {
     public List<Integer> getAllEmptySlots() {
         List<Integer> output = new LinkedList<Integer>();
         for (int i = 0; i < env.config.tableSize; i++) {
-            if (slotToCard[i] == null)
+            if (slotToCard[i] == EMPTY)
                 output.add(i);
         }
         return output;
     }
 
     public boolean isTokenPlaced(int player, int slot) {
-        synchronized (slots[slot]) {
-            return tokenToSlot[player][slot];
-        }
+        return (playerTokens.get(player * slotWords + slot / Long.SIZE) & 1L << slot) != 0;
+    }
+
+    /**
+     * Count the number of tokens a player has on the table.
+     *
+     * @param player - the player the tokens belong to.
+     * @return - the number of the player's tokens.
+     */
+    public int countTokens(int player) {
+        int tokens = 0;
+        for (int word = 0; word < slotWords; word++)
+            tokens += Long.bitCount(playerTokens.get(player * slotWords + word));
+        return tokens;
+    }
+
+    /**
+     * Finds the slots on which a player has tokens.
+     *
+     * @param player - the player the tokens belong to.
+     * @param tokens - an array to fill with the slots (in increasing order).
+     * @return - the number of slots filled in (up to tokens.length).
+     */
+    public int getTokens(int player, int[] tokens) {
+        int count = 0;
+        for (int word = 0; word < slotWords && count < tokens.length; word++)
+            for (long bits = playerTokens.get(player * slotWords + word); bits != 0 && count < tokens.length;
+                 bits &= bits - 1)
+                tokens[count++] = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+        return count;
+    }
+
+    private void setBit(int player, int slot) {
+        int word = player * slotWords + slot / Long.SIZE;
+        long bit = 1L << slot;
+        long bits;
+        do {
+            bits = playerTokens.get(word);
+        } while (!playerTokens.compareAndSet(word, bits, bits | bit));
+    }
+
+    private void clearBit(int player, int slot) {
+        int word = player * slotWords + slot / Long.SIZE;
+        long bit = 1L << slot;
+        long bits;
+        do {
+            bits = playerTokens.get(word);
+        } while (!playerTokens.compareAndSet(word, bits, bits & ~bit));
     }
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogHandlerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void formatMessage_FillsInParameters() {
+
+        LogRecord record = new LogRecord(Level.SEVERE, "player {0} placing token on slot {1} ({2})");
+        record.setParameters(new Object[]{1, 60000L});
+
+        // numbers are written plainly, and a placeholder with no parameter is left as it is
+        assertEquals("player 1 placing token on slot 60000 ({2})", new LogFormatter("%3$s").formatMessage(record));
+    }
+
+    @Test
+    void flush_AllRecordsAreWritten() throws IOException, InterruptedException {
+
+        Path file = directory.resolve("test.log");
+        // a small buffer, so the threads that log have to wait for the writer now and then
+        AsyncLogHandler handler = AsyncLogHandler.start(file.toString(), 16);
+        handler.setFormatter(new LogFormatter("[%2$s] %3$s%n"));
+
+        int threads = 4;
+        int records = 5000;
+        Thread[] loggers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            loggers[t] = new Thread(() -> {
+                for (int i = 0; i < records; i++) {
+                    LogRecord record = new LogRecord(Level.INFO, "thread {0} record {1}");
+                    record.setParameters(new Object[]{thread, i});
+                    handler.publish(record);
+                }
+            });
+            loggers[t].start();
+        }
+        for (Thread logger : loggers)
+            logger.join();
+        handler.flush();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(threads * records, lines.size());
+        Set<String> distinct = new HashSet<>(lines);
+        assertEquals(threads * records, distinct.size());
+        assertTrue(distinct.contains("[INFO] thread 3 record 4999"));
+        handler.close();
+    }
+}
@@ -0,0 +1,93 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CardAtlasTest {
+
+    final int CELL_SIZE = 20;
+    final int CAPACITY = 16;
+
+    CardAtlas atlas;
+
+    @BeforeEach
+    void setUp() {
+        atlas = atlas(new Properties());
+    }
+
+    private CardAtlas atlas(Properties properties) {
+        properties.put("CellWidth", Integer.toString(CELL_SIZE));
+        properties.put("CellHeight", Integer.toString(CELL_SIZE));
+        // room for 16 cards of 20x20 pixels, 4 bytes each
+        properties.put("CardCacheMegabytes", Double.toString(CAPACITY * CELL_SIZE * CELL_SIZE * 4 / 1024.0 / 1024.0));
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Config config = new Config(logger, properties);
+        return new CardAtlas(config, new UtilImpl(config));
+    }
+
+    @Test
+    void cellOf_LeastRecentlyUsedCardIsEvicted() {
+
+        assertEquals(CAPACITY, atlas.capacity());
+        for (int card = 0; card < CAPACITY; card++)
+            atlas.cellOf(card);
+        assertEquals(CAPACITY, atlas.loads());
+
+        atlas.cellOf(0); // card 1 is now the least recently used
+        assertEquals(CAPACITY, atlas.loads());
+        int cell = atlas.cellOf(CAPACITY);
+        assertEquals(CAPACITY + 1, atlas.loads());
+        assertEquals(1, cell, "the card takes the cell of the evicted card");
+
+        atlas.cellOf(0);
+        assertEquals(CAPACITY + 1, atlas.loads());
+        atlas.cellOf(1);
+        assertEquals(CAPACITY + 2, atlas.loads());
+    }
+
+    @Test
+    void draw_ReloadedCardLooksTheSame() {
+
+        int[] before = pixels(5);
+        for (int card = 10; card < 10 + CAPACITY; card++)
+            atlas.cellOf(card); // evicts card 5
+        int[] after = pixels(5);
+
+        assertEquals(CAPACITY + 2, atlas.loads());
+        assertArrayEquals(before, after);
+    }
+
+    @Test
+    void draw_DeckWithNoImagesIsDrawn() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "4");
+        properties.put("FeatureCount", "5");
+        atlas = atlas(properties);
+
+        int[] first = pixels(0);
+        int[] empty = pixels(atlas.EMPTY);
+        for (int card = 1; card < 4 * 4 * 4 * 4 * 4; card *= 4) // cards differing from card 0 in a single feature
+            assertFalse(Arrays.equals(first, pixels(card)), "card " + card + " looks like card 0");
+        assertFalse(Arrays.equals(first, empty));
+    }
+
+    private int[] pixels(int card) {
+        BufferedImage image = new BufferedImage(CELL_SIZE, CELL_SIZE, BufferedImage.TYPE_INT_ARGB);
+        Graphics g = image.getGraphics();
+        atlas.draw(g, card, 0, 0, null);
+        g.dispose();
+        return image.getRGB(0, 0, CELL_SIZE, CELL_SIZE, null, 0, CELL_SIZE);
+    }
+}
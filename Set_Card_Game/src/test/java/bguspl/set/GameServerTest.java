@@ -0,0 +1,80 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameServerTest {
+
+    GameServer server;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "2");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("PlayerStrategies", "perfect,perfect");
+        properties.put("ComputerKeyPressesPerSecond", "0");
+        properties.put("TurnTimeoutSeconds", "-1");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("ServerConcurrentGames", "1");
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        server = new GameServer(logger, new Config(logger, properties));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.shutdown();
+    }
+
+    @Test
+    void run_GamesPlayToTheEnd() throws InterruptedException {
+
+        GameServer.Game first = server.create();
+        GameServer.Game second = server.create();
+        server.run(first);
+        server.run(second);
+        server.await(first);
+        server.await(second);
+
+        for (GameServer.Game game : server.games()) {
+            assertEquals(GameServer.State.FINISHED, game.state());
+            // no set is left at the end, so most of the 9 cards were collected
+            assertTrue(Arrays.stream(game.scores()).sum() >= 2);
+            assertTrue(game.winners().length > 0);
+        }
+        GameServer.Stats stats = server.stats();
+        assertEquals(2, stats.finished);
+        assertEquals(Arrays.stream(first.scores()).sum() + Arrays.stream(second.scores()).sum(), stats.points);
+    }
+
+    @Test
+    void terminate_GameWaitingForItsTurnNeverStarts() throws InterruptedException {
+
+        GameServer.Game first = server.create();
+        GameServer.Game second = server.create();
+        server.run(first);
+        server.run(second); // waits, as only one game runs at a time
+        server.terminate(second);
+        server.await(first);
+        server.await(second);
+
+        assertEquals(GameServer.State.FINISHED, first.state());
+        assertEquals(GameServer.State.TERMINATED, second.state());
+        assertEquals(0, second.durationMillis());
+        assertEquals(1, server.stats().terminated);
+    }
+}
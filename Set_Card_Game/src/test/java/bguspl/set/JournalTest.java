@@ -0,0 +1,112 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class JournalTest {
+
+    @TempDir
+    Path directory;
+
+    Path file;
+    Logger logger;
+    Config config;
+    VirtualClock clock;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        config = new Config(logger, properties);
+        clock = new VirtualClock();
+        file = directory.resolve("game.journal");
+    }
+
+    @Test
+    void run_ReplaysTheEventsInOrder() throws IOException, InterruptedException {
+
+        Journal journal = Journal.open(file, logger, config, clock);
+        journal.record(Journal.Event.RESHUFFLE, -1, -1, 81);
+        journal.record(Journal.Event.CARD_PLACED, -1, 3, 42);
+        journal.record(Journal.Event.TOKEN_PLACED, 1, 3, 0);
+        journal.recordClaim(1, new int[]{3, 4, 5});
+        journal.record(Journal.Event.VERDICT, 1, -1, Journal.SET);
+        journal.record(Journal.Event.TOKENS_REMOVED, -1, 3, 0);
+        journal.record(Journal.Event.CARD_REMOVED, -1, 3, 42);
+        journal.record(Journal.Event.SCORE, 1, -1, 1);
+        journal.record(Journal.Event.FREEZE, 1, -1, 1000);
+        journal.record(Journal.Event.WINNER, 1, -1, 1);
+        journal.close();
+
+        Replay replay = new Replay(file);
+        assertEquals(config.players, replay.players);
+        assertEquals(config.tableSize, replay.tableSize);
+
+        UserInterface ui = mock(UserInterface.class);
+        assertEquals(12, replay.run(ui, 0, clock));
+
+        InOrder order = inOrder(ui);
+        order.verify(ui).placeCard(42, 3);
+        order.verify(ui).placeToken(1, 3);
+        order.verify(ui).removeTokens(3);
+        order.verify(ui).removeCard(3);
+        order.verify(ui).setScore(1, 1);
+        order.verify(ui).setFreeze(1, 1000);
+        order.verify(ui).announceWinner(new int[]{1});
+        verify(ui, never()).removeToken(anyInt(), anyInt()); // claims and verdicts are not shown
+    }
+
+    @Test
+    void run_KeepsThePaceOfTheGame() throws IOException, InterruptedException {
+
+        Journal journal = Journal.open(file, logger, config, clock);
+        journal.record(Journal.Event.CARD_PLACED, -1, 0, 1);
+        clock.sleep(1000);
+        journal.record(Journal.Event.CARD_PLACED, -1, 1, 2);
+        clock.sleep(3000);
+        journal.record(Journal.Event.CARD_PLACED, -1, 2, 3);
+        journal.close();
+
+        // twice as fast: the last event is replayed 2 seconds after the first
+        VirtualClock replayClock = new VirtualClock();
+        new Replay(file).run(mock(UserInterface.class), 2, replayClock);
+        assertEquals(2000, replayClock.currentTimeMillis());
+    }
+
+    @Test
+    void run_JournalCutShortIsReplayedUpToTheCut() throws IOException, InterruptedException {
+
+        Journal journal = Journal.open(file, logger, config, clock);
+        journal.record(Journal.Event.CARD_PLACED, -1, 0, 1);
+        journal.record(Journal.Event.CARD_PLACED, -1, 1, 2);
+        journal.close();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Journal.HEADER_SIZE + Journal.RECORD_SIZE + Journal.RECORD_SIZE / 2);
+        }
+
+        UserInterface ui = mock(UserInterface.class);
+        assertEquals(1, new Replay(file).run(ui, 0, clock));
+        verify(ui).placeCard(1, 0);
+        verify(ui, never()).placeCard(2, 1);
+    }
+}
@@ -0,0 +1,69 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+
+    @Test
+    void bucketOf_BucketsAreContiguous() {
+
+        for (long value = 0; value < 1 << 20; value++) {
+            int bucket = LatencyRecorder.bucketOf(value);
+            assertTrue(LatencyRecorder.lowestValueOf(bucket) <= value);
+            assertTrue(value < LatencyRecorder.lowestValueOf(bucket + 1));
+        }
+        // the largest values have a bucket too
+        assertEquals(Long.MAX_VALUE >>> 57 << 57, LatencyRecorder.lowestValueOf(LatencyRecorder.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void percentile_WithinBucketAccuracy() {
+
+        LatencyRecorder recorder = new LatencyRecorder("test", "test");
+        for (long micros = 1; micros <= 100_000; micros++)
+            recorder.record(micros * 1000); // 1 us to 100 ms, evenly
+
+        assertEquals(100_000, recorder.getCount());
+        assertEquals(50_000.5, recorder.getMeanMicros(), 0.01);
+        assertEquals(50_000, recorder.getP50Micros(), 50_000 / 32.0);
+        assertEquals(99_000, recorder.getP99Micros(), 99_000 / 32.0);
+        assertEquals(100_000, recorder.getMaxMicros());
+        assertTrue(recorder.getP999Micros() <= recorder.getMaxMicros());
+    }
+
+    @Test
+    void register_MetricsAreInJmx() throws JMException {
+
+        Metrics metrics = new Metrics();
+        metrics.claimsSet.add(3);
+        metrics.claimsNotSet.increment();
+        metrics.claimToVerdict.record(2000);
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        metrics.register("test", logger);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("bguspl.set:scope=test,type=Metrics");
+        try {
+            assertEquals(0.25, (double) server.getAttribute(name, "PenaltyRate"));
+            assertEquals(3L, server.getAttribute(new ObjectName("bguspl.set:scope=test,type=Counter,name=claimsSet"),
+                    "Count"));
+            assertEquals(2.0, (double) server.getAttribute(
+                    new ObjectName("bguspl.set:scope=test,type=Latency,name=claimToVerdict"), "MaxMicros"));
+            assertTrue(metrics.snapshot().contains("penalty rate 25.0%"));
+        } finally {
+            metrics.close();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,125 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NetworkServerTest {
+
+    final int CLIENTS = 200;
+
+    Config config;
+    NetworkServer server;
+    Player[] players;
+    AtomicInteger presses;
+
+    void start(int clientBufferKilobytes) throws IOException {
+
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "1");
+        properties.put("NetworkSelectorThreads", "2");
+        properties.put("NetworkClientBufferKilobytes", Integer.toString(clientBufferKilobytes));
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        config = new Config(logger, properties);
+        presses = new AtomicInteger();
+        Env env = new Env(logger, config, null, new UtilImpl(config));
+        players = new Player[]{new Player(env, null, null, 0, true) {
+            @Override
+            public void keyPressed(int slot) {
+                presses.incrementAndGet();
+            }
+        }, null};
+        server = new NetworkServer(logger, config, players, null);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.dispose();
+    }
+
+    @Test
+    void run_ClientsSeeTheTableAndPress() throws Exception {
+
+        start(64);
+        for (int slot = 0; slot < config.tableSize; slot += 3)
+            server.placeCard(slot, slot); // before the clients connect: sent as the state of the table
+        // the table changes from two threads while the clients connect and play
+        int[] expected = new int[config.tableSize];
+        Thread[] dealers = new Thread[2];
+        for (int i = 0; i < dealers.length; i++) {
+            int first = i;
+            dealers[i] = new Thread(() -> {
+                try {
+                    for (int round = 0; round < 200; round++) {
+                        for (int slot = first; slot < config.tableSize; slot += dealers.length) {
+                            if (round % 7 == 0)
+                                server.removeCard(slot);
+                            else
+                                server.placeCard(round * config.tableSize + slot, slot);
+                            expected[slot] = round % 7 == 0 ? -1 : round * config.tableSize + slot;
+                            server.setCountdown(round, false);
+                        }
+                        Thread.sleep(2);
+                    }
+                } catch (InterruptedException ignored) {
+                }
+            });
+        }
+        NetworkLoadGenerator generator = new NetworkLoadGenerator(
+                new InetSocketAddress("localhost", server.port()), CLIENTS, 2, 1);
+        for (Thread dealer : dealers)
+            dealer.start();
+        NetworkLoadGenerator.Stats stats = generator.run(1500, 100);
+        for (Thread dealer : dealers)
+            dealer.join();
+
+        assertEquals(CLIENTS, stats.connected);
+        assertEquals(1, stats.joined, "only the human player's seat can be taken");
+        assertTrue(stats.presses > 0);
+        for (int client = 0; client < CLIENTS; client++)
+            assertArrayEquals(expected, generator.cards(client), "client " + client);
+        for (int i = 0; i < 100 && presses.get() < stats.presses; i++)
+            Thread.sleep(20);
+        assertEquals(stats.presses, presses.get());
+    }
+
+    @Test
+    void send_SlowClientIsDisconnected() throws Exception {
+
+        start(1);
+        try (SocketChannel slow = SocketChannel.open()) {
+            slow.socket().setReceiveBufferSize(1024);
+            slow.connect(new InetSocketAddress("localhost", server.port()));
+            for (int i = 0; i < 100 && server.clients() == 0; i++)
+                Thread.sleep(10);
+            assertEquals(1, server.clients());
+
+            for (int i = 0; i < 1_000_000 && server.clients() > 0; i++)
+                server.setElapsed(i); // never read by the client
+            for (int i = 0; i < 100 && server.clients() > 0; i++)
+                Thread.sleep(10);
+            assertEquals(0, server.clients());
+
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            long read = 0;
+            for (int n; (n = slow.read(buffer.clear())) >= 0; )
+                read += n;
+            assertTrue(read > 0, "the messages sent before it fell behind were delivered");
+        }
+    }
+}
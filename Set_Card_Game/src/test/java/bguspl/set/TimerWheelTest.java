@@ -0,0 +1,55 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimerWheelTest {
+
+    @Test
+    void schedule_TasksRunInOrderAndNeverEarly() throws InterruptedException {
+
+        // 8 buckets of 2 ms: the longer delays go around the wheel several times
+        TimerWheel wheel = TimerWheel.start(2, 8, "test-wheel");
+        int[] delays = {70, 5, 0, 33, 14, 100, 17}; // at least a tick apart, so that the order is known
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(delays.length);
+        long start = System.nanoTime();
+        for (int delay : delays)
+            wheel.schedule(() -> {
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                assertTrue(elapsed >= delay, "task of " + delay + " ms ran after " + elapsed + " ms");
+                ran.add(delay);
+                done.countDown();
+            }, delay);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 5, 14, 17, 33, 70, 100), ran);
+    }
+
+    @Test
+    void cancel_TaskDoesNotRun() throws InterruptedException {
+
+        TimerWheel wheel = TimerWheel.start(1, 16, "test-wheel");
+        CountDownLatch cancelled = new CountDownLatch(1);
+        CountDownLatch other = new CountDownLatch(1);
+        wheel.schedule(cancelled::countDown, 20).cancel();
+        wheel.schedule(other::countDown, 40);
+
+        assertTrue(other.await(5, TimeUnit.SECONDS));
+        assertEquals(1, cancelled.getCount());
+
+        // the wheel wakes up again for tasks scheduled after it went idle
+        Thread.sleep(50);
+        CountDownLatch later = new CountDownLatch(1);
+        wheel.schedule(later::countDown, 5);
+        assertTrue(later.await(5, TimeUnit.SECONDS));
+    }
+}
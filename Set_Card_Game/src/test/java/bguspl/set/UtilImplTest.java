@@ -0,0 +1,188 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    static UtilImpl createUtil(int featureSize, int featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", Integer.toString(featureSize));
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        return new UtilImpl(new Config(new MockLogger(), properties));
+    }
+
+    /**
+     * The original combinatorial search, used as the reference for the results of findSets.
+     */
+    static List<int[]> referenceFindSets(Util util, int featureSize, List<Integer> deck, int count) {
+        LinkedList<int[]> sets = new LinkedList<>();
+        int n = deck.size();
+        int r = featureSize;
+        int[] combination = new int[r];
+
+        for (int i = 0; i < r; ++i)
+            combination[i] = i;
+
+        while (combination[r - 1] < deck.size()) {
+            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
+            if (util.testSet(cards)) {
+                sets.add(cards);
+                if (sets.size() >= count) return sets;
+            }
+
+            int t = r - 1;
+            while (t != 0 && combination[t] == n - r + t) --t;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
+        }
+        return sets;
+    }
+
+    /**
+     * The original per-feature comparison, used as the reference for the results of testSet.
+     */
+    static boolean referenceTestSet(Util util, int featureCount, int[] cards) {
+        int[][] features = util.cardsToFeatures(cards);
+        for (int i = 0; i < featureCount; ++i) {
+            boolean sameSame = true, butDifferent = true;
+            for (int j = 1; j < features.length; ++j)
+                if (features[0][i] != features[j][i]) {
+                    sameSame = false;
+                    break;
+                }
+            for (int j = 1; j < features.length; ++j)
+                for (int k = j; k < features.length; ++k)
+                    if (features[j - 1][i] == features[k][i]) {
+                        butDifferent = false;
+                        break;
+                    }
+            if (sameSame == butDifferent) return false;
+        }
+        return true;
+    }
+
+    static List<Integer> randomDeck(int deckSize, int cards, Random random) {
+        List<Integer> deck = IntStream.range(0, deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, random);
+        return new ArrayList<>(deck.subList(0, cards));
+    }
+
+    private void assertSameSets(List<int[]> expected, List<int[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i)
+            assertEquals(Arrays.toString(expected.get(i)), Arrays.toString(actual.get(i)));
+    }
+
+    private void assertFindSetsMatchesReference(int featureSize, int featureCount, int[] deckSizes) {
+        UtilImpl util = createUtil(featureSize, featureCount);
+        int deckSize = (int) Math.pow(featureSize, featureCount);
+        Random random = new Random(featureSize * 31L + featureCount);
+        for (int cards : deckSizes) {
+            for (int round = 0; round < 5; ++round) {
+                List<Integer> deck = randomDeck(deckSize, Math.min(cards, deckSize), random);
+                for (int count : new int[]{1, 3, Integer.MAX_VALUE})
+                    assertSameSets(referenceFindSets(util, featureSize, deck, count), util.findSets(deck, count));
+            }
+        }
+    }
+
+    private void assertTestSetMatchesReference(int featureSize, int featureCount) {
+        UtilImpl util = createUtil(featureSize, featureCount);
+        int deckSize = (int) Math.pow(featureSize, featureCount);
+        Random random = new Random(featureSize * 17L + featureCount);
+        for (int round = 0; round < 2000; ++round) {
+            int[] cards = random.ints(1 + random.nextInt(featureSize + 1), 0, deckSize).toArray();
+            assertEquals(referenceTestSet(util, featureCount, cards), util.testSet(cards), Arrays.toString(cards));
+        }
+        // make sure some legal sets are tested as well
+        for (int[] set : util.findSets(randomDeck(deckSize, Math.min(deckSize, 30), random), 100))
+            assertTrue(util.testSet(set));
+    }
+
+    @Test
+    void cardToFeatures_StandardDeck() {
+        UtilImpl util = createUtil(3, 4);
+        assertEquals("[0, 0, 0, 0]", Arrays.toString(util.cardToFeatures(0)));
+        assertEquals("[1, 0, 2, 1]", Arrays.toString(util.cardToFeatures(1 * 27 + 2 * 3 + 1)));
+        assertEquals("[2, 2, 2, 2]", Arrays.toString(util.cardToFeatures(80)));
+    }
+
+    @Test
+    void testSet_SingleWordVectors() {
+        assertTestSetMatchesReference(3, 4);
+        assertTestSetMatchesReference(2, 6);
+        assertTestSetMatchesReference(4, 4);
+    }
+
+    @Test
+    void testSet_MultiWordVectors() {
+        // 33 values do not fit twice in a long, so every feature takes a word of its own
+        assertTestSetMatchesReference(33, 2);
+    }
+
+    @Test
+    void completeSet_MatchesTestSet() {
+        for (int featureSize : new int[]{3, 4}) {
+            UtilImpl util = createUtil(featureSize, 3);
+            int deckSize = (int) Math.pow(featureSize, 3);
+            Random random = new Random(featureSize);
+            for (int round = 0; round < 500; ++round) {
+                int[] cards = randomDeck(deckSize, featureSize - 1, random).stream().mapToInt(i -> i).toArray();
+                int completion = util.completeSet(cards);
+                int[] set = Arrays.copyOf(cards, featureSize);
+                int legalCompletions = 0;
+                for (int card = 0; card < deckSize; ++card) {
+                    set[featureSize - 1] = card;
+                    if (util.testSet(set)) {
+                        legalCompletions++;
+                        assertEquals(card, completion);
+                    }
+                }
+                if (legalCompletions == 0)
+                    assertEquals(-1, completion);
+            }
+        }
+    }
+
+    @Test
+    void findSets_StandardDeck() {
+        assertFindSetsMatchesReference(3, 4, new int[]{0, 2, 3, 12, 15, 21, 81});
+    }
+
+    @Test
+    void findSets_OtherFeatureSizes() {
+        assertFindSetsMatchesReference(2, 4, new int[]{1, 2, 5, 16});
+        assertFindSetsMatchesReference(4, 3, new int[]{3, 4, 12, 20, 64});
+        assertFindSetsMatchesReference(5, 2, new int[]{10, 25});
+    }
+
+    @Test
+    void findSets_FullDeckCount() {
+        // every pair of cards in the full deck is completed by exactly one card
+        UtilImpl util = createUtil(3, 4);
+        List<Integer> deck = IntStream.range(0, 81).boxed().collect(Collectors.toList());
+        List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(81 * 80 / 6, sets.size());
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+    }
+
+    static class MockLogger extends Logger {
+        protected MockLogger() {
+            super("", null);
+        }
+    }
+}
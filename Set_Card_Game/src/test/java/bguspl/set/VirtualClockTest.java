@@ -0,0 +1,36 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtualClockTest {
+
+    @Test
+    void runDueTasks_RunsTheTasksDueInOrder() {
+
+        VirtualClock clock = new VirtualClock();
+        List<String> ran = new ArrayList<>();
+        clock.schedule(() -> ran.add("b"), 20);
+        clock.schedule(() -> ran.add("a"), 10);
+        clock.schedule(() -> ran.add("cancelled"), 15).cancel();
+        clock.schedule(() -> clock.schedule(() -> ran.add("c"), 0), 20); // scheduled for now, by a task
+        assertEquals(10, clock.nextTaskTime());
+
+        assertFalse(clock.runDueTasks()); // nothing is due yet
+        clock.advanceTo(clock.nextTaskTime());
+        assertTrue(clock.runDueTasks());
+        assertEquals(List.of("a"), ran);
+
+        clock.advanceTo(clock.nextTaskTime());
+        assertEquals(20, clock.currentTimeMillis());
+        assertTrue(clock.runDueTasks());
+        assertEquals(List.of("a", "b", "c"), ran);
+        assertEquals(Long.MAX_VALUE, clock.nextTaskTime());
+    }
+}
@@ -0,0 +1,95 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClaimQueueTest {
+
+    private static final int SET_SIZE = 3;
+
+    @Test
+    void offerAndPoll_KeepsOrderAndBound() {
+        ClaimQueue queue = new ClaimQueue(3, SET_SIZE);
+        assertEquals(4, queue.capacity());
+
+        for (int player = 0; player < queue.capacity(); player++)
+            assertTrue(queue.offer(player, new int[]{player, player + 1, player + 2}, player * 10L));
+        assertFalse(queue.offer(9, new int[]{0, 1, 2}, 0));
+
+        ClaimQueue.Claim claim = new ClaimQueue.Claim(SET_SIZE);
+        for (int player = 0; player < queue.capacity(); player++) {
+            assertTrue(queue.poll(claim));
+            assertEquals(player, claim.player);
+            assertEquals(player + 2, claim.slots[2]);
+            assertEquals(player * 10L, claim.time);
+        }
+        assertFalse(queue.poll(claim));
+
+        // the freed cells can be reused
+        assertTrue(queue.offer(7, new int[]{3, 4, 5}, 0));
+        assertEquals(1, queue.drainTo(new ClaimQueue.Claim[]{claim, new ClaimQueue.Claim(SET_SIZE)}));
+        assertEquals(7, claim.player);
+    }
+
+    @Test
+    void concurrentPlayers_NoClaimLostOrDuplicated() throws InterruptedException {
+        final int players = 32;
+        final int claimsPerPlayer = 20000;
+        ClaimQueue queue = new ClaimQueue(players, SET_SIZE);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int player = 0; player < players; player++) {
+            final int id = player;
+            Thread thread = new Thread(() -> {
+                int[] slots = new int[SET_SIZE];
+                try {
+                    start.await();
+                } catch (InterruptedException ignored) {
+                }
+                for (int i = 0; i < claimsPerPlayer; i++) {
+                    // every slot carries the sequence number, to catch torn records
+                    slots[0] = slots[1] = slots[2] = i;
+                    while (!queue.offer(id, slots, i))
+                        Thread.yield();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // the dealer: claims of each player must arrive exactly once and in the order they were made
+        int[] nextExpected = new int[players];
+        ClaimQueue.Claim[] batch = new ClaimQueue.Claim[8];
+        for (int i = 0; i < batch.length; i++)
+            batch[i] = new ClaimQueue.Claim(SET_SIZE);
+        start.countDown();
+        long taken = 0;
+        while (taken < (long) players * claimsPerPlayer) {
+            int count = queue.drainTo(batch);
+            for (int i = 0; i < count; i++) {
+                ClaimQueue.Claim claim = batch[i];
+                assertEquals(nextExpected[claim.player], claim.time);
+                for (int slot : claim.slots)
+                    assertEquals(claim.time, slot);
+                nextExpected[claim.player]++;
+            }
+            taken += count;
+            if (count == 0)
+                Thread.yield();
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+        assertFalse(queue.poll(batch[0]));
+        for (int player = 0; player < players; player++)
+            assertEquals(claimsPerPlayer, nextExpected[player]);
+    }
+}
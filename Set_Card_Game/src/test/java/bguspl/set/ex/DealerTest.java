@@ -0,0 +1,95 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceNone;
+import bguspl.set.UtilImpl;
+import bguspl.set.VirtualClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DealerTest {
+
+    Env env;
+    Table table;
+    Player[] players;
+    Dealer dealer;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "3");
+        properties.put("TurnTimeoutSeconds", "60");
+        properties.put("TurnTimeoutWarningSeconds", "5");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new UserInterfaceNone(), new UtilImpl(config), new VirtualClock(),
+                new Random(3));
+        table = new Table(env);
+        players = new Player[config.players];
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+        dealer.start();
+    }
+
+    /**
+     * @return - the first three slots of the table (other than the excluded ones) that hold a legal set iff isSet.
+     */
+    private int[] findSlots(boolean isSet, int[] excluded) {
+        int slots = env.config.tableSize;
+        for (int a = 0; a < slots; a++)
+            for (int b = a + 1; b < slots; b++)
+                for (int c = b + 1; c < slots; c++) {
+                    int[] set = {a, b, c};
+                    boolean free = true;
+                    for (int slot : set)
+                        for (int other : excluded)
+                            free &= slot != other;
+                    if (free && env.util.testSet(new int[]{table.slotToCard[a], table.slotToCard[b],
+                            table.slotToCard[c]}) == isSet)
+                        return set;
+                }
+        return null;
+    }
+
+    private void claim(int player, int[] slots) {
+        for (int slot : slots)
+            table.placeToken(player, slot);
+        assertTrue(dealer.claimSet(player, slots));
+    }
+
+    @Test
+    void claims_AdjudicatedTogetherInOrder() {
+
+        int[] set = findSlots(true, new int[0]);
+        assertNotNull(set);
+        int[] notSet = findSlots(false, set);
+        assertNotNull(notSet);
+        int[] cards = {table.slotToCard[set[0]], table.slotToCard[set[1]], table.slotToCard[set[2]]};
+
+        claim(0, set);
+        claim(1, set); // too late: no penalty
+        claim(2, notSet);
+        assertTrue(dealer.step()); // a single wake-up for the whole burst
+
+        assertTrue(players[0].shouldPoint);
+        assertFalse(players[1].shouldPoint || players[1].shouldPenalty);
+        assertTrue(players[2].shouldPenalty);
+        assertEquals(1, env.metrics.claimsSet.getCount());
+        assertEquals(1, env.metrics.claimsStale.getCount());
+        assertEquals(1, env.metrics.claimsNotSet.getCount());
+        for (int card : cards)
+            assertEquals(table.EMPTY, table.cardToSlot[card]); // the set's cards are gone
+    }
+}
@@ -0,0 +1,77 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeckTest {
+
+    @Test
+    void draw_EveryCardOnce() {
+        Deck deck = new Deck(81, new Random(1));
+        BitSet drawn = new BitSet();
+        for (int i = 0; i < 40; i++)
+            drawn.set(deck.draw());
+        // returned cards are drawn again
+        for (int card = drawn.nextSetBit(0); card >= 0; card = drawn.nextSetBit(card + 1))
+            if (card % 2 == 0) {
+                deck.add(card);
+                drawn.clear(card);
+            }
+        assertEquals(81 - drawn.cardinality(), deck.size());
+
+        while (!deck.isEmpty()) {
+            int card = deck.draw();
+            assertFalse(drawn.get(card), "card " + card + " drawn twice");
+            drawn.set(card);
+        }
+        assertEquals(81, drawn.cardinality());
+    }
+
+    @Test
+    void addTo_CardsLeft() {
+        Deck deck = new Deck(27, new Random(5));
+        Set<Integer> left = new HashSet<>();
+        for (int card = 0; card < 27; card++)
+            left.add(card);
+        int returned = deck.draw();
+        for (int i = 0; i < 10; i++)
+            left.remove(deck.draw());
+        deck.add(returned);
+
+        List<Integer> cards = new ArrayList<>();
+        deck.addTo(cards);
+        assertEquals(deck.size(), cards.size());
+        assertEquals(left, new HashSet<>(cards));
+    }
+
+    @Test
+    void draw_SameSeedSameOrder() {
+        Deck first = new Deck(1000, new Random(7));
+        Deck second = new Deck(1000, new Random(7));
+        for (int i = 0; i < 1000; i++)
+            assertEquals(first.draw(), second.draw());
+    }
+
+    @Test
+    void draw_HugeDeckIsNotMaterialized() {
+        int cards = 1 << 30; // 4 gigabytes as an array of ints
+        Deck deck = new Deck(cards, new Random(3));
+        Set<Integer> drawn = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            int card = deck.draw();
+            assertTrue(card >= 0 && card < cards);
+            assertTrue(drawn.add(card), "card " + card + " drawn twice");
+        }
+        assertEquals(cards - 10_000, deck.size());
+    }
+}
@@ -0,0 +1,146 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyRingTest {
+
+    @Test
+    void offer_SameSlotCancelsOut() {
+        KeyRing ring = new KeyRing(6);
+        assertEquals(KeyRing.QUEUED, ring.offer(1));
+        assertEquals(KeyRing.QUEUED, ring.offer(2));
+        assertEquals(KeyRing.COALESCED, ring.offer(2));
+        assertEquals(KeyRing.QUEUED, ring.offer(2)); // the press before it is gone, so this one is queued
+        assertEquals(KeyRing.QUEUED, ring.offer(3));
+
+        assertEquals(1, ring.poll());
+        assertEquals(2, ring.poll());
+        assertEquals(3, ring.poll());
+        assertEquals(ring.NONE, ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void offer_CancelledPressesAreSkipped() {
+        KeyRing ring = new KeyRing(6);
+        ring.offer(1);
+        ring.offer(2);
+        ring.offer(2);
+        assertEquals(KeyRing.COALESCED, ring.offer(1)); // the last press waiting is 1 again
+        assertEquals(ring.NONE, ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void offer_FullRingDrops() {
+        KeyRing ring = new KeyRing(3);
+        for (int slot = 0; slot < 3; slot++)
+            assertEquals(KeyRing.QUEUED, ring.offer(slot));
+        assertEquals(KeyRing.DROPPED, ring.offer(5));
+        assertEquals(KeyRing.COALESCED, ring.offer(2)); // cancelling still works when full
+
+        assertEquals(0, ring.poll());
+        assertEquals(KeyRing.QUEUED, ring.offer(5));
+        assertEquals(1, ring.poll());
+        assertEquals(5, ring.poll());
+        assertEquals(ring.NONE, ring.poll());
+    }
+
+    /**
+     * Starts a thread that takes the presses of a ring into a list, until it is interrupted and the ring is empty.
+     */
+    private static Thread consumer(KeyRing ring, List<Integer> taken) {
+        Thread consumer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted() || !ring.isEmpty()) {
+                int slot = ring.poll();
+                if (slot != ring.NONE)
+                    taken.add(slot);
+                else {
+                    Thread.onSpinWait();
+                    Thread.yield(); // the producers may need the processor
+                }
+            }
+        });
+        consumer.start();
+        return consumer;
+    }
+
+    /**
+     * Presses the slots first, first, first + step, first + step, ... (count presses in all), retrying the presses
+     * dropped: the second press of a pair cancels the first unless it was taken (or another press came in between).
+     *
+     * @return - the change in the number of presses waiting.
+     */
+    private static int pressPairs(KeyRing ring, int first, int step, int count) {
+        int queued = 0;
+        for (int i = 0; i < count; ) {
+            int result = ring.offer(first + i / 2 * step);
+            if (result == KeyRing.DROPPED) {
+                Thread.onSpinWait();
+                Thread.yield(); // the consumer may need the processor
+                continue; // retry the same press
+            }
+            queued += result;
+            i++;
+        }
+        return queued;
+    }
+
+    /**
+     * Checks that the presses taken of a producer (slots first, first + step, ...) come in whole pairs, in order.
+     */
+    private static void assertPairs(List<Integer> taken, int first, int step) {
+        List<Integer> mine = taken.stream().filter(slot -> slot % step == first).toList();
+        assertEquals(0, mine.size() % 2);
+        for (int i = 0; i < mine.size(); i += 2) {
+            assertEquals(mine.get(i), mine.get(i + 1));
+            assertTrue(i == 0 || mine.get(i) > mine.get(i - 1), "out of order at " + i);
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    void poll_EveryPressTakenOrCancelledOnce() throws InterruptedException {
+        KeyRing ring = new KeyRing(6);
+        List<Integer> taken = new ArrayList<>();
+        Thread consumer = consumer(ring, taken);
+        int queued = pressPairs(ring, 0, 1, 10_000);
+        consumer.interrupt();
+        consumer.join();
+
+        assertEquals(queued, taken.size());
+        assertPairs(taken, 0, 1);
+    }
+
+    @Test
+    @Timeout(10)
+    void offer_TwoProducersLoseNoPress() throws InterruptedException {
+        KeyRing ring = new KeyRing(256); // room enough for the producers to be preempted in the middle of an offer
+        List<Integer> taken = new ArrayList<>();
+        Thread consumer = consumer(ring, taken);
+        // one producer presses the even slots and the other the odd ones, at the same time
+        AtomicInteger queued = new AtomicInteger();
+        Thread[] producers = new Thread[2];
+        for (int i = 0; i < producers.length; i++) {
+            int first = i;
+            producers[i] = new Thread(() -> queued.addAndGet(pressPairs(ring, first, 2, 100_000)));
+            producers[i].start();
+        }
+        for (Thread producer : producers)
+            producer.join();
+        consumer.interrupt();
+        consumer.join();
+
+        assertEquals(queued.get(), taken.size());
+        assertPairs(taken, 0, 2);
+        assertPairs(taken, 1, 2);
+    }
+}
@@ -0,0 +1,82 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerfectStrategyTest {
+
+    Table table;
+    Util util;
+    PerfectStrategy strategy;
+    int[] presses;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "4");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "1");
+        properties.put("PlayerStrategies", "perfect");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        util = new UtilImpl(config);
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), util);
+        table = new Table(env);
+        strategy = (PerfectStrategy) PlayerStrategy.create(env, table, 0);
+        presses = new int[2 * config.featureSize];
+
+        // cards 0, 3, 6 (in slots 1, 5, 7) are the only set (only the third feature differs)
+        int[] cards = {10, 0, 67, 15, 8, 3, 40, 6};
+        for (int slot = 0; slot < cards.length; ++slot)
+            table.placeCard(cards[slot], slot);
+        assertEquals(1, table.countSets());
+    }
+
+    @Test
+    void plan_PressesTheSetOnTheTable() {
+
+        int count = strategy.plan(presses);
+
+        int[] planned = Arrays.copyOf(presses, count);
+        Arrays.sort(planned);
+        assertArrayEquals(new int[]{1, 5, 7}, planned);
+    }
+
+    @Test
+    void plan_TakesBackTokensOffTheSet() {
+
+        table.placeToken(0, 0);
+        table.placeToken(0, 5);
+
+        int count = strategy.plan(presses);
+
+        // the token on slot 0 is taken back, and the one on slot 5 stays
+        int[] planned = Arrays.copyOf(presses, count);
+        Arrays.sort(planned);
+        assertArrayEquals(new int[]{0, 1, 7}, planned);
+        assertEquals(0, presses[0]);
+    }
+
+    @Test
+    void plan_NothingWithoutSets() {
+
+        table.removeCard(1);
+
+        assertTrue(!table.hasSets());
+        assertEquals(0, strategy.plan(presses));
+    }
+}
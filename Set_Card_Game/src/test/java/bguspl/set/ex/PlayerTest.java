@@ -4,18 +4,22 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.VirtualClock;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Random;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -70,4 +74,27 @@ class PlayerTest {
         // check that ui.setScore was called with the player's id and the correct score
         verify(ui).setScore(eq(player.id), eq(expectedScore));
     }
+
+    @Test
+    void penalty_FreezeShowsTheSecondsLeft() {
+
+        VirtualClock clock = new VirtualClock();
+        Config config = new Config(logger, (String) null);
+        Env env = new Env(logger, config, ui, util, clock, new Random(1));
+        player = new Player(env, dealer, table, 0, false);
+
+        player.penalty(); // 3 seconds, by default
+        while (clock.nextTaskTime() != Long.MAX_VALUE) {
+            clock.advanceTo(clock.nextTaskTime());
+            clock.runDueTasks();
+        }
+
+        // the seconds shown are rounded up, so the freeze shows 3, 2 and 1 for a second each
+        InOrder order = inOrder(ui);
+        order.verify(ui).setFreeze(0, 3000);
+        order.verify(ui).setFreeze(0, 2000);
+        order.verify(ui).setFreeze(0, 1000);
+        order.verify(ui).setFreeze(0, 0);
+        assertEquals(config.penaltyFreezeMillis, clock.currentTimeMillis());
+    }
 }
\ No newline at end of file
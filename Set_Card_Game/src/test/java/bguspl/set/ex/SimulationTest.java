@@ -0,0 +1,113 @@
+package bguspl.set.ex;
+
+import bguspl.set.Clock;
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceNone;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulationTest {
+
+    Config config;
+    TableTest.MockLogger logger;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "3");
+        properties.put("PlayerStrategies", "perfect,human-like,random");
+        properties.put("TurnTimeoutSeconds", "60");
+        properties.put("TurnTimeoutWarningSeconds", "5");
+        logger = new TableTest.MockLogger();
+        config = new Config(logger, properties);
+    }
+
+    @Test
+    void run_SameSeedSameGame() {
+
+        Simulation.Result first = new Simulation(logger, config, 42).run();
+        Simulation.Result second = new Simulation(logger, config, 42).run();
+
+        assertArrayEquals(first.scores, second.scores);
+        assertArrayEquals(first.winners, second.winners);
+        assertEquals(first.virtualMillis, second.virtualMillis);
+    }
+
+    @Test
+    void run_GameIsPlayedToTheEnd() {
+
+        Simulation.Result result = new Simulation(logger, config, 7).run();
+
+        // the game ends when no set is left, so at least 81 / 3 - 8 sets were collected (not all of them, maybe)
+        assertTrue(Arrays.stream(result.scores).sum() >= 81 / 3 - 8);
+        assertTrue(result.virtualMillis > 0);
+        assertEquals(Arrays.stream(result.scores).max().getAsInt(), result.scores[result.winners[0]]);
+    }
+
+    /**
+     * A user interface that records the cards placed, as "card@slot".
+     */
+    static class DealRecorder extends UserInterfaceNone {
+        final List<String> deals = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void placeCard(int card, int slot) {
+            deals.add(card + "@" + slot);
+        }
+
+        @Override
+        public void placeCards(int[] cards, int[] slots) {
+            for (int i = 0; i < cards.length; i++)
+                placeCard(cards[i], slots[i]);
+        }
+    }
+
+    @Test
+    void run_DealsAsTheThreadedGame() throws InterruptedException {
+
+        // a single player that never misses claims the same sets in any timing, so the dealer draws the same cards
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "1");
+        properties.put("PlayerStrategies", "perfect");
+        properties.put("TurnTimeoutSeconds", "0");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PointFreezeSeconds", "0.05");
+        properties.put("ComputerKeyPressesPerSecond", "0");
+        config = new Config(logger, properties);
+
+        DealRecorder simulated = new DealRecorder();
+        Simulation.Result result = new Simulation(logger, config, 5, simulated).run();
+
+        DealRecorder threaded = new DealRecorder();
+        Env env = new Env(logger, config, threaded, new UtilImpl(config), Clock.SYSTEM, new Random(5));
+        Table table = new Table(env);
+        Player[] players = new Player[config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        players[0] = new Player(env, dealer, table, 0, false);
+        Thread dealerThread = env.newThread(dealer, "dealer");
+        dealerThread.start();
+        dealerThread.join(30_000);
+        assertFalse(dealerThread.isAlive());
+
+        assertEquals(simulated.deals, threaded.deals);
+        assertEquals(result.scores[0], players[0].score());
+        assertTrue(result.scores[0] > 0);
+    }
+}
@@ -4,20 +4,26 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.stream.Collectors;
 import java.util.logging.Logger;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
-    private Integer[] slotToCard;
-    private Integer[] cardToSlot;
+    private int[] slotToCard;
+    private int[] cardToSlot;
 
     @BeforeEach
     void setUp() {
@@ -32,8 +38,10 @@ class TableTest {
         properties.put("PlayerKeys2", "85,73,79,80");
         MockLogger logger = new MockLogger();
         Config config = new Config(logger, properties);
-        slotToCard = new Integer[config.tableSize];
-        cardToSlot = new Integer[config.deckSize];
+        slotToCard = new int[config.tableSize];
+        cardToSlot = new int[config.deckSize];
+        Arrays.fill(slotToCard, -1);
+        Arrays.fill(cardToSlot, -1);
 
         Env env = new Env(logger, config, new MockUserInterface(), new MockUtil());
         table = new Table(env, slotToCard, cardToSlot);
@@ -58,8 +66,8 @@ class TableTest {
     private void placeSomeCardsAndAssert() throws InterruptedException {
         table.placeCard(8, 2);
 
-        assertEquals(8, (int) slotToCard[2]);
-        assertEquals(2, (int) cardToSlot[8]);
+        assertEquals(8, slotToCard[2]);
+        assertEquals(2, cardToSlot[8]);
     }
 
     @Test
@@ -95,6 +103,120 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void countSets_UpdatedOnPlaceAndRemove() {
+
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "4");
+        properties.put("TableDelaySeconds", "0");
+        MockLogger logger = new MockLogger();
+        Config config = new Config(logger, properties);
+        Util util = new UtilImpl(config);
+        table = new Table(new Env(logger, config, new MockUserInterface(), util));
+
+        // cards 0, 1, 2 form a set (only the last feature differs), and so do 0, 3, 6 and 0, 4, 8
+        int[] cards = {0, 1, 2, 3, 6, 4, 8, 40};
+        for (int slot = 0; slot < cards.length; ++slot) {
+            table.placeCard(cards[slot], slot);
+            List<Integer> onTable = onTable(0, slot + 1);
+            assertEquals(util.findSets(onTable, Integer.MAX_VALUE).size(), table.countSets());
+        }
+        assertTrue(table.hasSets());
+
+        table.removeCard(0);
+        List<Integer> onTable = onTable(1, cards.length);
+        assertEquals(util.findSets(onTable, Integer.MAX_VALUE).size(), table.countSets());
+
+        for (int slot = 1; slot < cards.length; ++slot)
+            table.removeCard(slot);
+        assertEquals(0, table.countSets());
+        assertFalse(table.hasSets());
+    }
+
+    private List<Integer> onTable(int fromSlot, int toSlot) {
+        return Arrays.stream(table.slotToCard, fromSlot, toSlot).boxed().collect(Collectors.toList());
+    }
+
+    @Test
+    void placeToken_OnlyOnCards() {
+
+        fillSomeSlots();
+        assertFalse(table.placeToken(0, 0));
+        assertTrue(table.placeToken(0, 1));
+        assertFalse(table.placeToken(0, 1));
+        assertTrue(table.placeToken(1, 1));
+        assertTrue(table.placeToken(0, 2));
+
+        assertTrue(table.isTokenPlaced(0, 1));
+        assertTrue(table.isTokenPlaced(1, 1));
+        assertFalse(table.isTokenPlaced(1, 2));
+        assertEquals(2, table.countTokens(0));
+        int[] tokens = new int[3];
+        assertEquals(2, table.getTokens(0, tokens));
+        assertEquals(1, tokens[0]);
+        assertEquals(2, tokens[1]);
+    }
+
+    @Test
+    void removeCard_RemovesAllTokensOnSlot() {
+
+        fillSomeSlots();
+        table.placeToken(0, 1);
+        table.placeToken(1, 1);
+        table.placeToken(0, 2);
+
+        table.removeCard(1);
+        assertEquals(-1, slotToCard[1]);
+        assertEquals(-1, cardToSlot[3]);
+        assertFalse(table.isTokenPlaced(0, 1));
+        assertFalse(table.isTokenPlaced(1, 1));
+        assertTrue(table.isTokenPlaced(0, 2));
+        assertEquals(1, table.countTokens(0));
+        assertEquals(0, table.countTokens(1));
+        assertFalse(table.removeToken(1, 1));
+        assertTrue(table.removeToken(0, 2));
+    }
+
+    @Test
+    void placeCardsAndRemoveCards_OneUiCallPerBatch() {
+
+        Properties properties = new Properties();
+        properties.put("TableDelaySeconds", "0");
+        MockLogger logger = new MockLogger();
+        Config config = new Config(logger, properties);
+        int[] uiCalls = new int[2];
+        table = new Table(new Env(logger, config, new MockUserInterface() {
+            @Override
+            public void placeCards(int[] cards, int[] slots) {
+                uiCalls[0]++;
+                assertEquals(3, cards.length);
+            }
+
+            @Override
+            public void removeCards(int[] slots) {
+                uiCalls[1]++;
+                assertEquals(2, slots.length, "the empty slot is skipped");
+            }
+        }, new UtilImpl(config)));
+
+        table.placeCards(new int[]{0, 1, 2}, new int[]{5, 0, 3}); // a set
+        assertEquals(1, table.slotToCard[0]);
+        assertEquals(3, table.cardToSlot[2]);
+        assertEquals(1, table.countSets());
+        table.placeToken(0, 5);
+        table.placeToken(1, 5);
+
+        table.removeCards(new int[]{5, 1, 3});
+        assertEquals(-1, table.slotToCard[5]);
+        assertEquals(-1, table.cardToSlot[0]);
+        assertEquals(1, table.slotToCard[0]);
+        assertEquals(0, table.countSets());
+        assertEquals(0, table.countTokens(0));
+        assertEquals(0, table.countTokens(1));
+        assertArrayEquals(new int[]{1, 1}, uiCalls);
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -138,6 +260,11 @@ class TableTest {
             return false;
         }
 
+        @Override
+        public int completeSet(int[] cards) {
+            return -1;
+        }
+
         @Override
         public List<int[]> findSets(List<Integer> deck, int count) {
             return null;